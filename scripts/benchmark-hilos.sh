@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# Compara hilos de plataforma vs hilos virtuales bajo carga bloqueante (JDBC).
+#
+# Requisitos: el JAR construido (mvn package), PostgreSQL accesible con las variables SPRING_DATASOURCE_*,
+# y la herramienta de carga `hey` (https://github.com/rakyll/hey).
+#
+# Uso: scripts/benchmark-hilos.sh [concurrencias] [peticiones-por-nivel]
+#   scripts/benchmark-hilos.sh "50 200 1000" 20000
+set -euo pipefail
+
+CONCURRENCIAS=${1:-"50 200 1000"}
+PETICIONES=${2:-20000}
+PUERTO=${PUERTO:-8080}
+JAR=$(ls target/gestion-perfil-*.jar | head -n 1)
+BASE="http://localhost:${PUERTO}/api/v1/perfiles"
+
+esperar_arranque() {
+  for _ in $(seq 1 60); do
+    curl -sf "http://localhost:${PUERTO}/actuator/health/readiness" > /dev/null && return 0
+    sleep 1
+  done
+  echo "El servicio no arrancó" >&2
+  exit 1
+}
+
+for VIRTUAL in false true; do
+  SPRING_THREADS_VIRTUAL_ENABLED=$VIRTUAL SERVER_PORT=$PUERTO java -jar "$JAR" > "target/benchmark-virtual-$VIRTUAL.log" 2>&1 &
+  PID=$!
+  trap 'kill $PID 2> /dev/null || true' EXIT
+  esperar_arranque
+
+  # Datos de prueba; el listado de públicos no pasa por la caché, así que cada petición bloquea en JDBC
+  curl -sf -X POST "$BASE/bench_user" -H "Content-Type: application/json" \
+       -d '{"apodo":"bench","informacionContactoPublica":true}' > /dev/null
+
+  for C in $CONCURRENCIAS; do
+    echo "== hilos virtuales=$VIRTUAL concurrencia=$C =="
+    hey -n "$PETICIONES" -c "$C" "$BASE/publicos?limite=50" | grep -E "Requests/sec|50% in|99% in|\[[0-9]{3}\]"
+  done
+
+  kill $PID
+  wait $PID 2> /dev/null || true
+done
@@ -0,0 +1,78 @@
+#!/usr/bin/env bash
+# Mide el arranque de la aplicación: los segundos del mensaje "Started GestionPerfilApplication in X seconds"
+# y el tiempo hasta la primera petición atendida (desde que se lanza la JVM hasta que
+# GET /api/v1/perfiles/publicos?limite=1 responde 200).
+#
+# Modos:
+#   update   esquema gestionado por Hibernate (ddl-auto=update, sin Flyway), como antes de las migraciones
+#   jar      configuración por defecto (Flyway + ddl-auto=validate)
+#   aot-cds  configuración AOT de Spring y archivo CDS generado con una ejecución de entrenamiento,
+#            igual que la etapa aot del Dockerfile
+#
+# Requisitos: el JAR construido con el perfil aot (mvn -Paot package; sirve para los tres modos) y PostgreSQL
+# accesible con las variables SPRING_DATASOURCE_*. Conviene que el esquema ya exista (un arranque previo)
+# para medir el caso habitual y no la creación inicial.
+#
+# Uso: scripts/medir-arranque.sh [repeticiones] [modos]
+#   scripts/medir-arranque.sh 5 "jar aot-cds"
+set -euo pipefail
+
+REPETICIONES=${1:-5}
+MODOS=${2:-"update jar aot-cds"}
+PUERTO=${PUERTO:-8080}
+JAR=$(ls target/gestion-perfil-*.jar | head -n 1)
+EXTRAIDO=target/aot-cds
+URL="http://localhost:${PUERTO}/api/v1/perfiles/publicos?limite=1"
+
+# Disposición extraída y archivo CDS (se regeneran en cada ejecución del script: dependen del JAR y de la JVM)
+preparar_cds() {
+  rm -rf "$EXTRAIDO"
+  java -Djarmode=tools -jar "$JAR" extract --destination "$EXTRAIDO" > /dev/null
+  java -XX:ArchiveClassesAtExit="$EXTRAIDO/aplicacion.jsa" \
+    -Dspring.aot.enabled=true \
+    -Dspring.context.exit=onRefresh \
+    -Dspring.flyway.enabled=false \
+    -Dspring.jpa.hibernate.ddl-auto=none \
+    -Dspring.jpa.properties.hibernate.boot.allow_jdbc_metadata_access=false \
+    -jar "$EXTRAIDO/$(basename "$JAR")" > target/aot-cds-entrenamiento.log 2>&1
+}
+
+comando() {
+  case $1 in
+    update)  echo "env SPRING_FLYWAY_ENABLED=false SPRING_JPA_HIBERNATE_DDL_AUTO=update java -jar $JAR" ;;
+    jar)     echo "java -jar $JAR" ;;
+    aot-cds) echo "java -XX:SharedArchiveFile=$EXTRAIDO/aplicacion.jsa -Dspring.aot.enabled=true -jar $EXTRAIDO/$(basename "$JAR")" ;;
+    *)       echo "Modo desconocido: $1" >&2; exit 1 ;;
+  esac
+}
+
+# Imprime "<segundos del mensaje Started> <milisegundos hasta la primera respuesta>"
+arrancar() {
+  local log="target/arranque-$1.log"
+  local inicio
+  inicio=$(date +%s%N)
+  SERVER_PORT="$PUERTO" $(comando "$1") > "$log" 2>&1 &
+  local pid=$!
+  trap 'kill $pid 2> /dev/null || true' EXIT
+  for _ in $(seq 1 1200); do
+    curl -sf -o /dev/null "$URL" && break
+    sleep 0.05
+  done
+  local primera=$(( ($(date +%s%N) - inicio) / 1000000 ))
+  kill "$pid"
+  wait "$pid" 2> /dev/null || true
+  echo "$(grep -oE "Started GestionPerfilApplication in [0-9.]+" "$log" | grep -oE "[0-9.]+$") $primera"
+}
+
+for MODO in $MODOS; do
+  [ "$MODO" = "aot-cds" ] && preparar_cds
+  for _ in $(seq 1 "$REPETICIONES"); do
+    arrancar "$MODO"
+  done | awk -v modo="$MODO" '
+    { started[NR] = $1; primera[NR] = $2 }
+    END {
+      asort(started); asort(primera)
+      printf "%-8s Started mediana %.2f s | primera petición mediana %d ms (min %d, max %d, n=%d)\n",
+        modo, started[int((NR + 1) / 2)], primera[int((NR + 1) / 2)], primera[1], primera[NR], NR
+    }'
+done
@@ -0,0 +1,168 @@
+package com.uniquindio.archmicroserv.gestion_perfil.benchmark;
+
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+import net.datafaker.Faker;
+import org.h2.jdbcx.JdbcDataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Datos de prueba realistas y reproducibles (semilla fija) para los benchmarks.
+ */
+public final class PerfilFixtures {
+
+    // Potencia de dos: los benchmarks recorren los datos con (indice & MASCARA)
+    public static final int CANTIDAD = 1024;
+    public static final int MASCARA = CANTIDAD - 1;
+
+    private PerfilFixtures() {
+    }
+
+    public static List<Perfil> perfiles() {
+        Faker faker = faker();
+        List<Perfil> perfiles = new ArrayList<>(CANTIDAD);
+        for (int i = 0; i < CANTIDAD; i++) {
+            String usuario = usuario(faker, i);
+            LocalDateTime creado = LocalDateTime.now().minusDays(faker.number().numberBetween(1, 1000));
+            perfiles.add(Perfil.builder()
+                    .usuarioId(usuario)
+                    .urlPaginaPersonal(faker.internet().url())
+                    .apodo(faker.name().fullName())
+                    .informacionContactoPublica(faker.bool().bool())
+                    .direccionCorrespondencia(faker.address().fullAddress())
+                    .biografia(faker.lorem().maxLengthSentence(faker.number().numberBetween(100, 2000)))
+                    .organizacion(faker.company().name())
+                    .paisResidencia(faker.address().country())
+                    .linkFacebook("https://facebook.com/" + usuario)
+                    .linkTwitter("https://twitter.com/" + usuario)
+                    .linkLinkedIn("https://linkedin.com/in/" + usuario)
+                    .linkInstagram("https://instagram.com/" + usuario)
+                    .linkGithub("https://github.com/" + usuario)
+                    .linkOtraRed(faker.internet().url())
+                    .createdAt(creado)
+                    .updatedAt(creado.plusHours(faker.number().numberBetween(0, 5000)))
+                    .build());
+        }
+        return perfiles;
+    }
+
+    /**
+     * Peticiones parciales como las que envían los clientes: cada campo presente con probabilidad 1/2.
+     */
+    public static List<PerfilRequestDTO> peticiones() {
+        Faker faker = faker();
+        List<PerfilRequestDTO> peticiones = new ArrayList<>(CANTIDAD);
+        for (int i = 0; i < CANTIDAD; i++) {
+            String usuario = usuario(faker, i);
+            peticiones.add(PerfilRequestDTO.builder()
+                    .urlPaginaPersonal(talVez(faker, faker.internet().url()))
+                    .apodo(talVez(faker, faker.name().fullName()))
+                    .informacionContactoPublica(faker.bool().bool() ? faker.bool().bool() : null)
+                    .direccionCorrespondencia(talVez(faker, faker.address().fullAddress()))
+                    .biografia(talVez(faker, faker.lorem().maxLengthSentence(faker.number().numberBetween(100, 2000))))
+                    .organizacion(talVez(faker, faker.company().name()))
+                    .paisResidencia(talVez(faker, faker.address().country()))
+                    .linkFacebook(talVez(faker, "https://facebook.com/" + usuario))
+                    .linkTwitter(talVez(faker, "https://twitter.com/" + usuario))
+                    .linkLinkedIn(talVez(faker, "https://linkedin.com/in/" + usuario))
+                    .linkInstagram(talVez(faker, "https://instagram.com/" + usuario))
+                    .linkGithub(talVez(faker, "https://github.com/" + usuario))
+                    .linkOtraRed(talVez(faker, faker.internet().url()))
+                    .build());
+        }
+        return peticiones;
+    }
+
+    /**
+     * Tabla perfiles en una base H2 en memoria (columnas de las migraciones V1 y V3) con los perfiles indicados.
+     */
+    public static JdbcTemplate baseDeDatos(String nombre, List<Perfil> perfiles) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + nombre + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("""
+                CREATE TABLE perfiles (
+                    usuario_id VARCHAR(255) PRIMARY KEY,
+                    url_pagina_personal VARCHAR(500),
+                    apodo VARCHAR(100),
+                    informacion_contacto_publica BOOLEAN NOT NULL,
+                    direccion_correspondencia VARCHAR(500),
+                    biografia TEXT,
+                    organizacion VARCHAR(255),
+                    pais_residencia VARCHAR(100),
+                    link_facebook VARCHAR(500),
+                    link_twitter VARCHAR(500),
+                    link_linkedin VARCHAR(500),
+                    link_instagram VARCHAR(500),
+                    link_github VARCHAR(500),
+                    link_otra_red VARCHAR(500),
+                    created_at TIMESTAMP NOT NULL,
+                    updated_at TIMESTAMP,
+                    version BIGINT NOT NULL DEFAULT 0
+                )""");
+        jdbcTemplate.batchUpdate("INSERT INTO perfiles VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                perfiles, 200, (ps, perfil) -> {
+                    ps.setString(1, perfil.getUsuarioId());
+                    ps.setString(2, perfil.getUrlPaginaPersonal());
+                    ps.setString(3, perfil.getApodo());
+                    ps.setBoolean(4, perfil.getInformacionContactoPublica());
+                    ps.setString(5, perfil.getDireccionCorrespondencia());
+                    ps.setString(6, perfil.getBiografia());
+                    ps.setString(7, perfil.getOrganizacion());
+                    ps.setString(8, perfil.getPaisResidencia());
+                    ps.setString(9, perfil.getLinkFacebook());
+                    ps.setString(10, perfil.getLinkTwitter());
+                    ps.setString(11, perfil.getLinkLinkedIn());
+                    ps.setString(12, perfil.getLinkInstagram());
+                    ps.setString(13, perfil.getLinkGithub());
+                    ps.setString(14, perfil.getLinkOtraRed());
+                    ps.setTimestamp(15, Timestamp.valueOf(perfil.getCreatedAt()));
+                    ps.setTimestamp(16, Timestamp.valueOf(perfil.getUpdatedAt()));
+                    ps.setLong(17, perfil.getVersion());
+                });
+        return jdbcTemplate;
+    }
+
+    /**
+     * Eventos con la forma en que los entrega el Jackson2JsonMessageConverter a PerfilEventListener.
+     */
+    public static List<Map<String, Object>> eventos() {
+        Faker faker = faker();
+        List<Map<String, Object>> eventos = new ArrayList<>(CANTIDAD);
+        for (int i = 0; i < CANTIDAD; i++) {
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("usuario", usuario(faker, i));
+            payload.put("correo", faker.internet().emailAddress());
+            payload.put("nombre", faker.name().fullName());
+
+            Map<String, Object> evento = new LinkedHashMap<>();
+            evento.put("id", faker.internet().uuid());
+            evento.put("tipoAccion", faker.bool().bool() ? "REGISTRO_USUARIO" : "PERFIL_ACTUALIZADO");
+            evento.put("fechaCreacion", LocalDateTime.now().toString());
+            evento.put("payload", payload);
+            eventos.add(evento);
+        }
+        return eventos;
+    }
+
+    private static Faker faker() {
+        return new Faker(Locale.of("es"), new Random(42));
+    }
+
+    private static String usuario(Faker faker, int indice) {
+        return faker.name().firstName().toLowerCase(Locale.ROOT) + indice;
+    }
+
+    private static String talVez(Faker faker, String valor) {
+        return faker.bool().bool() ? valor : null;
+    }
+}
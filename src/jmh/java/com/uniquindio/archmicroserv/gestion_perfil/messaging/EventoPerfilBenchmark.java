@@ -0,0 +1,58 @@
+package com.uniquindio.archmicroserv.gestion_perfil.messaging;
+
+import com.uniquindio.archmicroserv.gestion_perfil.benchmark.PerfilFixtures;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Camino completo de PerfilEventListener.handlePerfilEvent para el mapa que entrega el converter: extracción
+ * del evento, despacho por tipo y métricas. El servicio no toca la base de datos (solo cuenta los usuarios),
+ * así que se mide el costo propio del listener.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventoPerfilBenchmark {
+
+    private PerfilEventListener listener;
+    private List<Map<String, Object>> eventos;
+    private int indice;
+
+    @Setup
+    public void setUp() {
+        PerfilService perfilService = new PerfilService(null, null, null, null, null, null) {
+            @Override
+            public int provisionarPerfilesPorDefecto(Collection<String> usuarioIds) {
+                return usuarioIds.size();
+            }
+        };
+        // handlePerfilEvent no abre transacciones programáticas: el TransactionTemplate solo lo usa el modo por lotes
+        listener = new PerfilEventListener(perfilService, new Jackson2JsonMessageConverter(), null,
+                new SimpleMeterRegistry());
+        eventos = PerfilFixtures.eventos();
+    }
+
+    @Benchmark
+    public void handlePerfilEvent() {
+        listener.handlePerfilEvent(eventos.get(indice++ & PerfilFixtures.MASCARA));
+    }
+}
@@ -0,0 +1,108 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.uniquindio.archmicroserv.gestion_perfil.benchmark.PerfilFixtures;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Página de perfiles (lista de PerfilResponseDTO) escrita y leída en JSON, CBOR y Smile con la misma
+ * configuración de Jackson (fechas ISO-8601, como Spring Boot). La lectura es el costo del servicio que llama.
+ * El tamaño medio de la página en cada formato, sin comprimir y con gzip, se imprime al preparar el benchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerfilFormatosBenchmark {
+
+    // Potencia de dos que divide a PerfilFixtures.CANTIDAD: todas las páginas tienen el mismo tamaño
+    private static final int TAMANO_PAGINA = 32;
+    private static final int MASCARA_PAGINAS = PerfilFixtures.CANTIDAD / TAMANO_PAGINA - 1;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    public String formato;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<List<PerfilResponseDTO>> paginas;
+    private List<byte[]> serializadas;
+    private int indice;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        ObjectMapper objectMapper = switch (formato) {
+            case "CBOR" -> json.copyWith(new CBORFactory());
+            case "SMILE" -> json.copyWith(new SmileFactory());
+            default -> json;
+        };
+        JavaType tipo = objectMapper.getTypeFactory().constructCollectionType(List.class, PerfilResponseDTO.class);
+        writer = objectMapper.writerFor(tipo);
+        reader = objectMapper.readerFor(tipo);
+
+        List<PerfilResponseDTO> respuestas = PerfilFixtures.perfiles().stream()
+                .map(PerfilMapper::mapToResponseDTO)
+                .toList();
+        paginas = new ArrayList<>();
+        serializadas = new ArrayList<>();
+        long bytes = 0;
+        long bytesGzip = 0;
+        for (int i = 0; i < respuestas.size(); i += TAMANO_PAGINA) {
+            List<PerfilResponseDTO> pagina = respuestas.subList(i, i + TAMANO_PAGINA);
+            byte[] cuerpo = writer.writeValueAsBytes(pagina);
+            paginas.add(pagina);
+            serializadas.add(cuerpo);
+            bytes += cuerpo.length;
+            bytesGzip += gzip(cuerpo);
+        }
+        System.out.printf("%n%s: %d bytes por página de %d perfiles (gzip: %d bytes)%n",
+                formato, bytes / paginas.size(), TAMANO_PAGINA, bytesGzip / paginas.size());
+    }
+
+    @Benchmark
+    public byte[] serializarPagina() throws IOException {
+        return writer.writeValueAsBytes(paginas.get(indice++ & MASCARA_PAGINAS));
+    }
+
+    @Benchmark
+    public List<PerfilResponseDTO> deserializarPagina() throws IOException {
+        return reader.readValue(serializadas.get(indice++ & MASCARA_PAGINAS));
+    }
+
+    private static int gzip(byte[] cuerpo) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(cuerpo.length);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(cuerpo);
+        }
+        return salida.size();
+    }
+}
@@ -0,0 +1,50 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.uniquindio.archmicroserv.gestion_perfil.benchmark.PerfilFixtures;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización de PerfilResponseDTO con la misma configuración de Jackson que usa Spring MVC.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerfilJsonBenchmark {
+
+    private ObjectWriter writer;
+    private List<PerfilResponseDTO> respuestas;
+    private int indice;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(PerfilResponseDTO.class);
+        respuestas = PerfilFixtures.perfiles().stream()
+                .map(PerfilMapper::mapToResponseDTO)
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] serializarPerfil() throws Exception {
+        return writer.writeValueAsBytes(respuestas.get(indice++ & PerfilFixtures.MASCARA));
+    }
+}
@@ -0,0 +1,108 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.uniquindio.archmicroserv.gestion_perfil.benchmark.PerfilFixtures;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CampoPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilJsonRepository;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilRepositoryCustomImpl;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilVersion;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.VistaPerfil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lectura de una página de perfiles públicos: entidad Perfil + PerfilResponseDTO + ObjectWriter
+ * frente a escribir cada fila directamente en el JsonGenerator (PerfilJsonRepository).
+ * Ambos caminos ejecutan la misma consulta sobre H2 en memoria y escriben en un stream nulo,
+ * así que la diferencia en gc.alloc.rate.norm es la del mapeo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerfilLecturaBenchmark {
+
+    private static final int LIMITE = 50;
+    private static final String PAGINA = "SELECT " + CampoPerfil.columnas(Arrays.asList(CampoPerfil.values()))
+            + " FROM perfiles WHERE informacion_contacto_publica = true AND usuario_id > ? ORDER BY usuario_id LIMIT ?";
+
+    private JdbcTemplate jdbcTemplate;
+    private PerfilJsonRepository perfilJsonRepository;
+    private ObjectMapper objectMapper;
+    private ObjectWriter writer;
+    private List<String> cursores;
+    private int indice;
+
+    @Setup
+    public void setUp() {
+        List<Perfil> perfiles = PerfilFixtures.perfiles();
+        jdbcTemplate = PerfilFixtures.baseDeDatos("lectura", perfiles);
+        perfilJsonRepository = new PerfilJsonRepository(jdbcTemplate);
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, PerfilResponseDTO.class));
+        // Cursores en el mismo orden pseudoaleatorio de los datos: páginas distintas en cada invocación
+        cursores = perfiles.stream().map(Perfil::getUsuarioId).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Benchmark
+    public int leerConEntidades() throws IOException {
+        List<PerfilResponseDTO> pagina = jdbcTemplate.query(PAGINA, PerfilRepositoryCustomImpl.PERFIL_ROW_MAPPER,
+                        siguienteCursor(), LIMITE).stream()
+                .map(PerfilMapper::mapToResponseDTO)
+                .toList();
+        writer.writeValue(OutputStream.nullOutputStream(), pagina);
+        return pagina.size();
+    }
+
+    @Benchmark
+    public int leerFilasAJson() throws IOException {
+        return escribirPagina(VistaPerfil.FULL);
+    }
+
+    // Vista resumen (?view=summary): no lee biografia ni los enlaces
+    @Benchmark
+    public int leerResumenAJson() throws IOException {
+        return escribirPagina(VistaPerfil.SUMMARY);
+    }
+
+    private int escribirPagina(VistaPerfil vista) throws IOException {
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(OutputStream.nullOutputStream())) {
+            List<PerfilVersion> versiones = perfilJsonRepository.escribirPublicos(
+                    siguienteCursor(), LIMITE, null, null, vista.getCampos(), generador);
+            return versiones.size();
+        }
+    }
+
+    private String siguienteCursor() {
+        return cursores.get(indice++ & PerfilFixtures.MASCARA);
+    }
+}
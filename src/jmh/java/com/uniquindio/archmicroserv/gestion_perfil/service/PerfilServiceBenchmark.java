@@ -0,0 +1,72 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.uniquindio.archmicroserv.gestion_perfil.benchmark.PerfilFixtures;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CampoPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.FacetasPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilRepositoryCustomImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trabajo de una escritura individual después de la sentencia: la fila que devuelve el upsert se mapea con
+ * PERFIL_ROW_MAPPER y se convierte en la respuesta y las facetas (PerfilService.registrarEscritura).
+ * El upsert es SQL de PostgreSQL (CTE + ON CONFLICT) y no corre en H2: la fila se lee por clave primaria.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerfilServiceBenchmark {
+
+    private static final String FILA = "SELECT " + CampoPerfil.columnas(Arrays.asList(CampoPerfil.values()))
+            + " FROM perfiles WHERE usuario_id = ?";
+
+    private JdbcTemplate jdbcTemplate;
+    private List<Perfil> perfiles;
+    private List<String> usuarios;
+    private int indice;
+
+    @Setup
+    public void setUp() {
+        perfiles = PerfilFixtures.perfiles();
+        jdbcTemplate = PerfilFixtures.baseDeDatos("escritura", perfiles);
+        usuarios = perfiles.stream().map(Perfil::getUsuarioId).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Benchmark
+    public PerfilResponseDTO mapToResponseDTO() {
+        return PerfilMapper.mapToResponseDTO(perfiles.get(indice++ & PerfilFixtures.MASCARA));
+    }
+
+    @Benchmark
+    public PerfilResponseDTO filaUpsert(Blackhole blackhole) {
+        Perfil perfil = jdbcTemplate.queryForObject(FILA, PerfilRepositoryCustomImpl.PERFIL_ROW_MAPPER,
+                usuarios.get(indice++ & PerfilFixtures.MASCARA));
+        blackhole.consume(FacetasPerfil.de(perfil));
+        return PerfilMapper.mapToResponseDTO(perfil);
+    }
+}
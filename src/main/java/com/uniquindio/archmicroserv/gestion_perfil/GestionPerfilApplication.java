@@ -2,12 +2,20 @@ package com.uniquindio.archmicroserv.gestion_perfil;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableAsync
+@EnableScheduling
 public class GestionPerfilApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(GestionPerfilApplication.class, args);
+		SpringApplication aplicacion = new SpringApplication(GestionPerfilApplication.class);
+		// Registra la duración de cada fase del arranque, consultable en /actuator/startup
+		aplicacion.setApplicationStartup(new BufferingApplicationStartup(4096));
+		aplicacion.run(args);
 	}
 
 }
@@ -0,0 +1,25 @@
+package com.uniquindio.archmicroserv.gestion_perfil.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Slf4j
+@Configuration
+public class FlywayConfig {
+
+    // Con AOT la condición spring.flyway.enabled de la autoconfiguración queda fijada en el build (Flyway siempre
+    // presente); la propiedad se vuelve a leer al arrancar para que desactivarla siga omitiendo las migraciones
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${spring.flyway.enabled:true}") boolean habilitado) {
+        return flyway -> {
+            if (habilitado) {
+                flyway.migrate();
+            } else {
+                log.info("Migraciones de Flyway omitidas (spring.flyway.enabled=false)");
+            }
+        };
+    }
+}
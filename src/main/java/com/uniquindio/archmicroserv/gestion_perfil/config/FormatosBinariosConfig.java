@@ -0,0 +1,29 @@
+package com.uniquindio.archmicroserv.gestion_perfil.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Convertidores de CBOR y Smile para los cuerpos que Spring MVC serializa (DTOs y errores) y para las
+ * peticiones. Reemplazan a los que Spring registra por defecto con la configuración de Jackson sin
+ * personalizar: se copian del ObjectMapper de la aplicación para que las fechas y las propiedades sean las
+ * mismas que en JSON.
+ */
+@Configuration(proxyBeanMethods = false)
+public class FormatosBinariosConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2CborHttpMessageConverter(objectMapper.copyWith(new CBORFactory()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(ObjectMapper objectMapper) {
+        return new MappingJackson2SmileHttpMessageConverter(objectMapper.copyWith(new SmileFactory()));
+    }
+}
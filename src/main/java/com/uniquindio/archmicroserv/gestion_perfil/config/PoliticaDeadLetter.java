@@ -0,0 +1,64 @@
+package com.uniquindio.archmicroserv.gestion_perfil.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.util.Map;
+
+/**
+ * Aplica el dead-letter exchange a gestorperfil.queue con una policy del broker (API HTTP de administración).
+ * Los argumentos x-dead-letter-* no se declaran en la cola: RabbitMQ rechaza con PRECONDITION_FAILED la
+ * redeclaración de una cola existente con otros argumentos, mientras que una policy se aplica y se cambia sobre
+ * colas ya creadas. Si la API no responde o el usuario no puede crear policies solo se registra un aviso; la
+ * policy se puede crear a mano con rabbitmqctl (README).
+ */
+@Slf4j
+public class PoliticaDeadLetter {
+
+    static final String NOMBRE = "gestorperfil-dlx";
+
+    private final RestClient restClient;
+    private final String virtualHost;
+    private final boolean habilitada;
+
+    public PoliticaDeadLetter(RestClient.Builder builder, String managementUrl, String usuario, String password,
+                              String virtualHost, boolean habilitada) {
+        this.restClient = builder.baseUrl(managementUrl)
+                .defaultHeaders(headers -> headers.setBasicAuth(usuario, password))
+                .build();
+        this.virtualHost = virtualHost;
+        this.habilitada = habilitada;
+    }
+
+    @PostConstruct
+    public void aplicar() {
+        if (!habilitada) {
+            log.info("Policy {} no aplicada (gestorperfil.rabbitmq.politica-dlx.enabled=false)", NOMBRE);
+            return;
+        }
+        Map<String, Object> politica = Map.of(
+                "pattern", "^" + RabbitMQConfig.GESTORPERFIL_QUEUE.replace(".", "\\.") + "$",
+                "apply-to", "queues",
+                "priority", 0,
+                "definition", Map.of(
+                        "dead-letter-exchange", RabbitMQConfig.GESTORPERFIL_DLX,
+                        "dead-letter-routing-key", RabbitMQConfig.GESTORPERFIL_DLQ));
+        try {
+            restClient.put()
+                    .uri("/api/policies/{vhost}/{nombre}", virtualHost, NOMBRE)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(politica)
+                    .retrieve()
+                    .toBodilessEntity();
+            log.info("Policy {} aplicada: {} desvía los mensajes rechazados a {}",
+                    NOMBRE, RabbitMQConfig.GESTORPERFIL_QUEUE, RabbitMQConfig.GESTORPERFIL_DLQ);
+        } catch (RestClientException e) {
+            log.warn("No se pudo aplicar la policy {} con la API de administración de RabbitMQ: {}. Hasta crearla, "
+                    + "los mensajes rechazados de {} se descartan", NOMBRE, e.getMessage(),
+                    RabbitMQConfig.GESTORPERFIL_QUEUE);
+        }
+    }
+}
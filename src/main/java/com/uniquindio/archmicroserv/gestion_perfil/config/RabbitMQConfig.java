@@ -1,15 +1,29 @@
 package com.uniquindio.archmicroserv.gestion_perfil.config;
 
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
 
 @Configuration
 @ConditionalOnProperty(
@@ -20,29 +34,121 @@ import org.springframework.context.annotation.Profile;
 @Profile("!test")
 public class RabbitMQConfig {
 
+    public static final String CACHE_INVALIDACION_EXCHANGE = "perfiles.cache.invalidacion";
+    public static final String PERFILES_EVENTOS_EXCHANGE = "perfiles.eventos";
+    public static final String GESTORPERFIL_QUEUE = "gestorperfil.queue";
+    public static final String GESTORPERFIL_DLX = "gestorperfil.dlx";
+    public static final String GESTORPERFIL_DLQ = "gestorperfil.queue.dlq";
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
     }
 
+    // Plantilla propia: spring.rabbitmq.template.* no se aplica. mandatory hace que el broker devuelva los
+    // mensajes sin ruta (requiere spring.rabbitmq.publisher-returns=true); PerfilOutboxRelay registra el callback
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(jsonMessageConverter());
+        template.setMandatory(true);
         return template;
     }
 
+    // El configurer de Spring Boot aplica spring.rabbitmq.listener.simple.* (concurrencia, ack, requeue)
+    // y, con spring.threads.virtual.enabled=true, ejecuta los consumidores en hilos virtuales.
+    // Con default-requeue-rejected=false un mensaje cuyo listener falla no se reencola en bucle:
+    // gestorperfil.queue lo desvía a gestorperfil.queue.dlq
     @Bean
-    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(ConnectionFactory connectionFactory) {
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
-        factory.setConnectionFactory(connectionFactory);
+        configurer.configure(factory, connectionFactory);
         factory.setMessageConverter(jsonMessageConverter());
         return factory;
     }
 
+    // Modo por lotes para gestorperfil.queue (gestorperfil.listener.batch.enabled=true): el consumidor
+    // acumula hasta batch-size mensajes o espera receive-timeout ms y entrega la lista completa.
+    // El prefetch se dimensiona por encima del lote para que el siguiente ya esté en camino.
+    // Ack manual: el listener confirma o rechaza cada mensaje según el resultado de su usuario.
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitBatchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${gestorperfil.listener.batch.size:100}") int batchSize,
+            @Value("${gestorperfil.listener.batch.prefetch:250}") int prefetch,
+            @Value("${gestorperfil.listener.batch.receive-timeout:200}") long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setMessageConverter(jsonMessageConverter());
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setReceiveTimeout(receiveTimeout);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        return factory;
+    }
+
+    // Sin argumentos, como se declaró siempre: redeclarar una cola existente con otros argumentos falla con
+    // PRECONDITION_FAILED. El dead-letter exchange se aplica con una policy del broker (PoliticaDeadLetter)
     @Bean
     public Queue gestorperfilQueue() {
-        return new Queue("gestorperfil.queue", true);
+        return new Queue(GESTORPERFIL_QUEUE, true);
     }
-}
 
+    @Bean
+    public PoliticaDeadLetter gestorperfilPoliticaDeadLetter(
+            @Value("${gestorperfil.rabbitmq.management-url:http://${spring.rabbitmq.host}:15672}") String managementUrl,
+            @Value("${spring.rabbitmq.username:guest}") String usuario,
+            @Value("${spring.rabbitmq.password:guest}") String password,
+            @Value("${spring.rabbitmq.virtual-host:/}") String virtualHost,
+            @Value("${gestorperfil.rabbitmq.politica-dlx.enabled:true}") boolean habilitada) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(2));
+        requestFactory.setReadTimeout(Duration.ofSeconds(5));
+        return new PoliticaDeadLetter(RestClient.builder().requestFactory(requestFactory), managementUrl,
+                usuario, password, virtualHost, habilitada);
+    }
+
+    // Mensajes rechazados (nack sin reencolar) de gestorperfil.queue, para inspeccionarlos o reenviarlos
+    @Bean
+    public DirectExchange gestorperfilDeadLetterExchange() {
+        return new DirectExchange(GESTORPERFIL_DLX, true, false);
+    }
+
+    @Bean
+    public Queue gestorperfilDeadLetterQueue() {
+        return QueueBuilder.durable(GESTORPERFIL_DLQ).build();
+    }
+
+    @Bean
+    public Binding gestorperfilDeadLetterBinding() {
+        return BindingBuilder.bind(gestorperfilDeadLetterQueue()).to(gestorperfilDeadLetterExchange())
+                .with(GESTORPERFIL_DLQ);
+    }
+
+    // Eventos de cambio de perfil publicados desde el outbox (perfil.creado, perfil.actualizado, perfil.eliminado)
+    @Bean
+    public TopicExchange perfilesEventosExchange() {
+        return new TopicExchange(PERFILES_EVENTOS_EXCHANGE, true, false);
+    }
+
+    @Bean
+    public FanoutExchange perfilCacheInvalidacionExchange() {
+        return new FanoutExchange(CACHE_INVALIDACION_EXCHANGE, true, false);
+    }
+
+    // Cola exclusiva y temporal por réplica: cada instancia recibe todas las invalidaciones
+    @Bean
+    public AnonymousQueue perfilCacheInvalidacionQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding perfilCacheInvalidacionBinding() {
+        return BindingBuilder.bind(perfilCacheInvalidacionQueue()).to(perfilCacheInvalidacionExchange());
+    }
+}
@@ -0,0 +1,86 @@
+package com.uniquindio.archmicroserv.gestion_perfil.config;
+
+import com.uniquindio.archmicroserv.gestion_perfil.service.ReplicasHealthIndicator;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Réplicas de lectura (gestorperfil.replicas.urls). El DataSource de la aplicación elige la conexión al
+ * ejecutar la primera sentencia: las transacciones de solo lectura usan una réplica y el resto el primario
+ * (spring.datasource). La lista se lee al arrancar y no en una condición, que con AOT quedaría fijada en el
+ * build: sin réplicas configuradas el enrutamiento se registra igual y todas las conexiones salen del primario.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ReplicasConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primarioDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primario");
+        return dataSource;
+    }
+
+    // Cada réplica copia la configuración del pool primario (credenciales, tamaño, propiedades del driver)
+    @Bean
+    public ReplicasDataSource replicasDataSource(
+            HikariDataSource primarioDataSource,
+            @Value("${gestorperfil.replicas.urls:}") List<String> urls,
+            @Value("${gestorperfil.replicas.connection-timeout-ms:2000}") long connectionTimeout) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            if (!StringUtils.hasText(url)) {
+                continue;
+            }
+            HikariConfig config = new HikariConfig();
+            primarioDataSource.copyStateTo(config);
+            config.setJdbcUrl(url.trim());
+            config.setPoolName("replica-" + (replicas.size() + 1));
+            config.setReadOnly(true);
+            // Una réplica caída no debe frenar las lecturas ni impedir el arranque
+            config.setConnectionTimeout(connectionTimeout);
+            config.setInitializationFailTimeout(-1);
+            replicas.put(config.getPoolName(), new HikariDataSource(config));
+        }
+        return new ReplicasDataSource(primarioDataSource, replicas);
+    }
+
+    // Spring Boot solo registra las métricas de los pools que son beans (el primario): las réplicas se registran
+    // igual, con el tag pool=replica-n en hikaricp.connections.*
+    @Bean
+    public MeterBinder replicasMeterBinder(ReplicasDataSource replicasDataSource) {
+        return registry -> replicasDataSource.replicas().values().forEach(replica -> {
+            if (replica instanceof HikariDataSource pool && pool.getMetricsTrackerFactory() == null) {
+                pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+            }
+        });
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primarioDataSource, ReplicasDataSource replicasDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primarioDataSource);
+        dataSource.setReadOnlyDataSource(replicasDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicasHealthIndicator replicasHealthIndicator(ReplicasDataSource replicasDataSource) {
+        return new ReplicasHealthIndicator(replicasDataSource);
+    }
+}
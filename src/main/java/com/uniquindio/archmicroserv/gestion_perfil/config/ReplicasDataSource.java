@@ -0,0 +1,165 @@
+package com.uniquindio.archmicroserv.gestion_perfil.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Conexiones de las transacciones de solo lectura (readOnlyDataSource de LazyConnectionDataSourceProxy).
+ * Reparte las conexiones entre las réplicas disponibles por turnos; una réplica que no entrega una conexión
+ * queda fuera hasta que {@link #verificar()} la encuentre sana. Sin réplicas disponibles, o con la transacción
+ * fijada al primario ({@link #leerDelPrimario()}), la conexión sale del primario.
+ */
+@Slf4j
+public class ReplicasDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final String CLAVE_PRIMARIO = ReplicasDataSource.class.getName() + ".primario";
+
+    // Segundos de espera de Connection.isValid en la verificación
+    private static final int TIMEOUT_VERIFICACION = 2;
+
+    private final DataSource primario;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger turno = new AtomicInteger();
+
+    public ReplicasDataSource(DataSource primario, Map<String, DataSource> replicas) {
+        this.primario = primario;
+        replicas.forEach((nombre, dataSource) -> this.replicas.add(new Replica(nombre, dataSource)));
+    }
+
+    /**
+     * Fija la transacción actual al primario hasta que termine. La conexión se elige al ejecutar la primera
+     * sentencia, así que basta con llamarlo antes de consultar. Sin transacción activa no hace nada.
+     */
+    public static void leerDelPrimario() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(CLAVE_PRIMARIO)) {
+            return;
+        }
+        TransactionSynchronizationManager.bindResource(CLAVE_PRIMARIO, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CLAVE_PRIMARIO);
+            }
+        });
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return obtener(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return obtener(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection obtener(Conexion conexion) throws SQLException {
+        if (!replicas.isEmpty() && !TransactionSynchronizationManager.hasResource(CLAVE_PRIMARIO)) {
+            int inicio = Math.floorMod(turno.getAndIncrement(), replicas.size());
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get((inicio + i) % replicas.size());
+                if (!replica.disponible) {
+                    continue;
+                }
+                try {
+                    return conexion.obtener(replica.dataSource);
+                } catch (SQLException e) {
+                    marcarCaida(replica, e);
+                }
+            }
+        }
+        return conexion.obtener(primario);
+    }
+
+    /**
+     * Comprueba cada réplica con una conexión nueva: las que responden vuelven a recibir lecturas.
+     */
+    public void verificar() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(TIMEOUT_VERIFICACION)) {
+                    throw new SQLException("La conexión no es válida");
+                }
+                if (!replica.disponible) {
+                    log.info("Réplica {} disponible de nuevo", replica.nombre);
+                }
+                replica.error = null;
+                replica.disponible = true;
+            } catch (SQLException e) {
+                marcarCaida(replica, e);
+            }
+        }
+    }
+
+    /**
+     * @return nombre de cada réplica con "UP" o el último error
+     */
+    public Map<String, String> estado() {
+        Map<String, String> estado = new LinkedHashMap<>();
+        for (Replica replica : replicas) {
+            estado.put(replica.nombre, replica.disponible ? "UP" : "DOWN: " + replica.error);
+        }
+        return estado;
+    }
+
+    /**
+     * @return DataSource de cada réplica por nombre
+     */
+    public Map<String, DataSource> replicas() {
+        Map<String, DataSource> dataSources = new LinkedHashMap<>();
+        replicas.forEach(replica -> dataSources.put(replica.nombre, replica.dataSource));
+        return dataSources;
+    }
+
+    public long disponibles() {
+        return replicas.stream().filter(replica -> replica.disponible).count();
+    }
+
+    private void marcarCaida(Replica replica, SQLException e) {
+        if (replica.disponible) {
+            log.warn("Réplica {} fuera de servicio, las lecturas pasan a otra réplica o al primario: {}",
+                    replica.nombre, e.getMessage());
+        }
+        replica.error = e.getMessage();
+        replica.disponible = false;
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable cerrable) {
+                cerrable.close();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Conexion {
+        Connection obtener(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class Replica {
+
+        private final String nombre;
+        private final DataSource dataSource;
+        private volatile boolean disponible = true;
+        private volatile String error;
+
+        private Replica(String nombre, DataSource dataSource) {
+            this.nombre = nombre;
+            this.dataSource = dataSource;
+        }
+    }
+}
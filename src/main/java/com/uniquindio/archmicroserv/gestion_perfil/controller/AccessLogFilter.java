@@ -0,0 +1,152 @@
+package com.uniquindio.archmicroserv.gestion_perfil.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Una línea JSON por petición en el logger {@value #LOGGER}, que logback-spring.xml envía a un appender
+ * asíncrono: el hilo de la petición solo encola el evento. Las lecturas exitosas (GET/HEAD con estado
+ * menor a 400) se muestrean; las escrituras y los errores se registran siempre.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AccessLogFilter extends OncePerRequestFilter {
+
+    static final String LOGGER = "acceso";
+
+    private static final Logger accesos = LoggerFactory.getLogger(LOGGER);
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final double muestreoLecturas;
+    // Peticiones que representa cada línea de una lectura muestreada
+    private final double pesoLecturas;
+
+    public AccessLogFilter(@Value("${gestorperfil.access-log.muestreo-lecturas:0.1}") double muestreoLecturas) {
+        if (muestreoLecturas < 0 || muestreoLecturas > 1) {
+            throw new IllegalArgumentException(
+                    "gestorperfil.access-log.muestreo-lecturas debe estar entre 0 y 1: " + muestreoLecturas);
+        }
+        this.muestreoLecturas = muestreoLecturas;
+        this.pesoLecturas = muestreoLecturas > 0 ? 1 / muestreoLecturas : 0;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        long inicio = System.nanoTime();
+        boolean error = true;
+        try {
+            filterChain.doFilter(request, response);
+            error = false;
+        } finally {
+            if (!error && request.isAsyncStarted()) {
+                // La exportación NDJSON termina en otro hilo: se registra cuando se completa la respuesta.
+                // Tras un timeout o un error el contenedor también llama a onComplete; solo cuenta la primera línea
+                AtomicBoolean registrada = new AtomicBoolean();
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        if (registrada.compareAndSet(false, true)) {
+                            registrar(request, response.getStatus(), inicio, null, null);
+                        }
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        if (registrada.compareAndSet(false, true)) {
+                            registrar(request, estadoError(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE),
+                                    inicio, "timeout", event.getThrowable());
+                        }
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        if (registrada.compareAndSet(false, true)) {
+                            registrar(request, estadoError(response, HttpServletResponse.SC_INTERNAL_SERVER_ERROR),
+                                    inicio, "error", event.getThrowable());
+                        }
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                // Una excepción que escapa de la cadena la convierte el contenedor en 500
+                registrar(request, error ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus(), inicio,
+                        null, null);
+            }
+        }
+    }
+
+    // Si la respuesta ya empezó con 200 el cliente lo recibió, pero la línea refleja que la petición falló
+    private static int estadoError(HttpServletResponse response, int porDefecto) {
+        return response.getStatus() >= 400 ? response.getStatus() : porDefecto;
+    }
+
+    private void registrar(HttpServletRequest request, int estado, long inicio, String fallo, Throwable causa) {
+        boolean muestreada = lecturaExitosa(request.getMethod(), estado);
+        if (!accesos.isInfoEnabled()
+                || (muestreada && ThreadLocalRandom.current().nextDouble() >= muestreoLecturas)) {
+            return;
+        }
+        long duracion = System.nanoTime() - inicio;
+        accesos.info(linea(request, estado, duracion, muestreada, fallo, causa));
+    }
+
+    private static boolean lecturaExitosa(String metodo, int estado) {
+        return ("GET".equals(metodo) || "HEAD".equals(metodo)) && estado < 400;
+    }
+
+    private String linea(HttpServletRequest request, int estado, long duracionNanos, boolean muestreada,
+                         String fallo, Throwable causa) {
+        StringWriter salida = new StringWriter(256);
+        try (JsonGenerator generador = JSON.createGenerator(salida)) {
+            generador.writeStartObject();
+            generador.writeStringField("fecha", Instant.now().toString());
+            generador.writeStringField("metodo", request.getMethod());
+            // Plantilla de la ruta (/api/v1/perfiles/{usuarioId}): agrupa sin depender del id
+            Object ruta = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (ruta != null) {
+                generador.writeStringField("ruta", ruta.toString());
+            }
+            generador.writeStringField("uri", request.getRequestURI());
+            generador.writeNumberField("estado", estado);
+            generador.writeNumberField("duracionMs", duracionNanos / 1_000_000.0);
+            // Peso de la línea (1 / fracción muestreada): sumarlo reconstruye los totales a partir de la muestra
+            generador.writeNumberField("muestreo", muestreada ? pesoLecturas : 1.0);
+            // Respuesta asíncrona interrumpida (timeout del contenedor o cliente desconectado)
+            if (fallo != null) {
+                generador.writeStringField("fallo", fallo);
+            }
+            if (causa != null) {
+                generador.writeStringField("causa", causa.getClass().getName());
+            }
+            generador.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return salida.toString();
+    }
+}
@@ -0,0 +1,85 @@
+package com.uniquindio.archmicroserv.gestion_perfil.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Representaciones de las respuestas que se escriben token a token (JsonGenerator). CBOR y Smile tienen el
+ * mismo modelo de datos que JSON (mismas propiedades, fechas ISO-8601) y se negocian con el header Accept;
+ * sin Accept, con {@code *}{@code /*} o sin ningún tipo soportado la respuesta es JSON.
+ */
+enum FormatoRespuesta {
+
+    JSON(MediaType.APPLICATION_JSON, null, ""),
+    CBOR(MediaType.APPLICATION_CBOR, new CBORFactory(), "-cbor"),
+    SMILE(new MediaType("application", "x-jackson-smile"), new SmileFactory(), "-smile");
+
+    private final MediaType mediaType;
+    private final JsonFactory fabrica;
+    private final String sufijoEtag;
+
+    FormatoRespuesta(MediaType mediaType, JsonFactory fabrica, String sufijoEtag) {
+        this.mediaType = mediaType;
+        this.fabrica = fabrica;
+        this.sufijoEtag = sufijoEtag;
+    }
+
+    MediaType getMediaType() {
+        return mediaType;
+    }
+
+    static FormatoRespuesta negociar(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (!StringUtils.hasText(accept)) {
+            return JSON;
+        }
+        List<MediaType> aceptados;
+        try {
+            aceptados = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        // Orden estable: a igual calidad gana el orden del header y, para comodines, JSON
+        aceptados.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType aceptado : aceptados) {
+            if (aceptado.getQualityValue() == 0) {
+                continue;
+            }
+            for (FormatoRespuesta formato : values()) {
+                if (aceptado.includes(formato.mediaType)) {
+                    return formato;
+                }
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * JSON usa la fábrica del ObjectMapper de la aplicación, así sus bytes no cambian.
+     */
+    JsonGenerator crearGenerador(ObjectMapper objectMapper, OutputStream salida) throws IOException {
+        return (fabrica != null ? fabrica : objectMapper.getFactory()).createGenerator(salida);
+    }
+
+    // Cada representación tiene su propio ETag fuerte; el de JSON es el de siempre
+    String etag(String etag) {
+        if (sufijoEtag.isEmpty()) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + sufijoEtag + "\"";
+    }
+}
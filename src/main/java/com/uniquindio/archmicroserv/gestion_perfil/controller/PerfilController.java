@@ -1,61 +1,362 @@
 package com.uniquindio.archmicroserv.gestion_perfil.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilBatchRequestDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilBatchResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilConsultaItemDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilFacetasDTO;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CampoPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CursorBusqueda;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilVersion;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.VistaPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilRespuestasCache;
 import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/perfiles")
 @RequiredArgsConstructor
-@Slf4j
 public class PerfilController {
 
+    static final String HEADER_SIGUIENTE_CURSOR = "X-Siguiente-Cursor";
+    private static final int TAMANO_INICIAL_PAGINA = 16 * 1024;
+    private static final int TAMANO_INICIAL_PERFIL = 2 * 1024;
+    private static final String VARIANTE_GZIP = "+gzip";
+    private static final Pattern CALIDAD_CERO = Pattern.compile("q=0(\\.0{0,3})?");
+
     private final PerfilService perfilService;
+    private final PerfilRespuestasCache respuestasCache;
+    private final ObjectMapper objectMapper;
 
     @PostMapping("/{usuarioId}")
     public ResponseEntity<PerfilResponseDTO> crearOActualizarPerfil(
             @PathVariable String usuarioId,
             @Valid @RequestBody PerfilRequestDTO requestDTO) {
-        log.info("POST /api/v1/perfiles/{}", usuarioId);
         PerfilResponseDTO response = perfilService.crearOActualizarPerfil(usuarioId, requestDTO);
         return ResponseEntity.ok(response);
     }
 
-    @GetMapping("/{usuarioId}")
-    public ResponseEntity<PerfilResponseDTO> obtenerPerfil(@PathVariable String usuarioId) {
-        log.info("GET /api/v1/perfiles/{}", usuarioId);
-        PerfilResponseDTO response = perfilService.obtenerPerfil(usuarioId);
+    @PostMapping("/batch")
+    public ResponseEntity<PerfilBatchResponseDTO> crearOActualizarPerfiles(
+            @Valid @RequestBody PerfilBatchRequestDTO requestDTO) {
+        PerfilBatchResponseDTO response = perfilService.crearOActualizarPerfiles(requestDTO.getPerfiles());
         return ResponseEntity.ok(response);
     }
 
-    @GetMapping("/publicos")
-    public ResponseEntity<List<PerfilResponseDTO>> obtenerPerfilesPublicos() {
-        log.info("GET /api/v1/perfiles/publicos");
-        List<PerfilResponseDTO> response = perfilService.obtenerPerfilesPublicos();
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<PerfilConsultaItemDTO>> obtenerPerfiles(@RequestParam List<String> ids) {
+        List<PerfilConsultaItemDTO> response = perfilService.obtenerPerfiles(ids);
         return ResponseEntity.ok(response);
     }
 
+    // Solo los campos pedidos (?fields=usuarioId,apodo): la consulta lee únicamente esas columnas
+    @GetMapping(params = {"ids", "fields"})
+    public ResponseEntity<byte[]> obtenerPerfiles(@RequestParam List<String> ids,
+                                                  @RequestParam String fields,
+                                                  HttpServletRequest request) throws IOException {
+        List<CampoPerfil> campos = CampoPerfil.desdePropiedades(fields);
+        FormatoRespuesta formato = FormatoRespuesta.negociar(request);
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(TAMANO_INICIAL_PAGINA);
+        try (JsonGenerator generador = formato.crearGenerador(objectMapper, cuerpo)) {
+            perfilService.escribirPerfiles(ids, campos, generador);
+        }
+        return ok(formato).body(cuerpo.toByteArray());
+    }
+
+    @GetMapping("/{usuarioId}")
+    public ResponseEntity<byte[]> obtenerPerfil(@PathVariable String usuarioId,
+                                                HttpServletRequest request) throws IOException {
+        FormatoRespuesta formato = FormatoRespuesta.negociar(request);
+        Optional<ResponseEntity<byte[]>> noModificado = noModificado(usuarioId, formato, request);
+        if (noModificado.isPresent()) {
+            return noModificado.get();
+        }
+
+        // Un acierto se escribe tal cual: sin cargar el perfil, mapearlo ni serializarlo
+        boolean aceptaGzip = aceptaGzip(request);
+        String variante = aceptaGzip ? formato.name() + VARIANTE_GZIP : formato.name();
+        PerfilRespuestasCache.Respuesta respuesta = respuestasCache.obtener(usuarioId, variante).orElse(null);
+        if (respuesta == null) {
+            respuesta = serializarPerfil(usuarioId, formato, aceptaGzip, variante);
+        }
+
+        // Tomcat no vuelve a comprimir una respuesta que ya tiene Content-Encoding
+        ResponseEntity.BodyBuilder builder = conVersion(
+                ok(formato), formato, respuesta.version(), respuesta.createdAt(), respuesta.updatedAt())
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (respuesta.gzip()) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            if (respuesta.version() != null) {
+                builder.eTag(PerfilEtags.gzip(
+                        formato.etag(PerfilEtags.etag(respuesta.version(), respuesta.createdAt()))));
+            }
+        }
+        return builder.body(respuesta.cuerpo());
+    }
+
+    private PerfilRespuestasCache.Respuesta serializarPerfil(String usuarioId, FormatoRespuesta formato,
+                                                            boolean aceptaGzip, String variante) throws IOException {
+        long marcaLectura = respuestasCache.marcaLectura();
+        PerfilResponseDTO perfil = perfilService.obtenerPerfil(usuarioId);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(TAMANO_INICIAL_PERFIL);
+        try (JsonGenerator generador = formato.crearGenerador(objectMapper, salida)) {
+            objectMapper.writeValue(generador, perfil);
+        }
+        byte[] cuerpo = salida.toByteArray();
+        boolean gzip = aceptaGzip && respuestasCache.comprimible(cuerpo.length);
+        PerfilRespuestasCache.Respuesta respuesta =
+                new PerfilRespuestasCache.Respuesta(perfil.getVersion(), perfil.getCreatedAt(), perfil.getUpdatedAt(),
+                        gzip ? gzip(cuerpo) : cuerpo, gzip);
+        respuestasCache.guardar(usuarioId, variante, respuesta, marcaLectura);
+        return respuesta;
+    }
+
+    // Accept-Encoding con gzip (o *) y calidad distinta de cero
+    private static boolean aceptaGzip(HttpServletRequest request) {
+        String codificaciones = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (!StringUtils.hasText(codificaciones)) {
+            return false;
+        }
+        for (String codificacion : codificaciones.split(",")) {
+            String[] partes = codificacion.split(";");
+            String nombre = partes[0].trim();
+            if (nombre.equalsIgnoreCase("gzip") || nombre.equals("*")) {
+                return partes.length < 2 || !CALIDAD_CERO.matcher(partes[1].trim()).matches();
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] cuerpo) throws IOException {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream(cuerpo.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(salida)) {
+            gzip.write(cuerpo);
+        }
+        return salida.toByteArray();
+    }
+
+    @GetMapping(value = "/{usuarioId}", params = "fields")
+    public ResponseEntity<byte[]> obtenerPerfil(@PathVariable String usuarioId,
+                                                @RequestParam String fields,
+                                                HttpServletRequest request) throws IOException {
+        // Los nombres desconocidos se rechazan antes de consultar la base de datos
+        List<CampoPerfil> campos = CampoPerfil.desdePropiedades(fields);
+
+        FormatoRespuesta formato = FormatoRespuesta.negociar(request);
+        Optional<ResponseEntity<byte[]>> noModificado = noModificado(usuarioId, formato, request);
+        if (noModificado.isPresent()) {
+            return noModificado.get();
+        }
+
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(TAMANO_INICIAL_PAGINA);
+        PerfilVersion version;
+        try (JsonGenerator generador = formato.crearGenerador(objectMapper, cuerpo)) {
+            version = perfilService.escribirPerfil(usuarioId, campos, generador);
+        }
+        ResponseEntity.BodyBuilder builder = conVersion(ok(formato), formato, null, null, version.getUpdatedAt());
+        String etag = version.getVersion() != null
+                ? formato.etag(PerfilEtags.etag(version.getVersion(), version.getCreatedAt()))
+                : null;
+        return conCodificacion(builder, etag, cuerpo.toByteArray(), request);
+    }
+
+    // Peticiones condicionales: se valida solo con la versión (la de las respuestas en caché si las hay),
+    // sin cargar el perfil completo
+    private <T> Optional<ResponseEntity<T>> noModificado(String usuarioId, FormatoRespuesta formato,
+                                                         HttpServletRequest request) {
+        if (!PerfilEtags.esCondicional(request)) {
+            return Optional.empty();
+        }
+        PerfilVersion version = respuestasCache.version(usuarioId)
+                .orElseGet(() -> perfilService.obtenerVersionPerfil(usuarioId));
+        String etag = formato.etag(PerfilEtags.etag(version.getVersion(), version.getCreatedAt()));
+        long lastModified = PerfilEtags.lastModified(version.getUpdatedAt());
+        if (!PerfilEtags.noModificado(request, etag, lastModified)) {
+            return Optional.empty();
+        }
+        // Mismos validadores y Vary que el 200 de la variante que el cliente tiene guardada
+        return Optional.of(ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(PerfilEtags.etagNoModificado(request, etag))
+                .lastModified(lastModified)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .build());
+    }
+
+    private static ResponseEntity.BodyBuilder conVersion(ResponseEntity.BodyBuilder builder, FormatoRespuesta formato,
+                                                         Long version, LocalDateTime createdAt,
+                                                         LocalDateTime updatedAt) {
+        if (version != null) {
+            builder.eTag(formato.etag(PerfilEtags.etag(version, createdAt)));
+        }
+        if (updatedAt != null) {
+            builder.lastModified(PerfilEtags.lastModified(updatedAt));
+        }
+        return builder;
+    }
+
+    // La representación depende de Accept: las cachés intermedias deben distinguirlas
+    private static ResponseEntity.BodyBuilder ok(FormatoRespuesta formato) {
+        return ResponseEntity.ok()
+                .contentType(formato.getMediaType())
+                .varyBy(HttpHeaders.ACCEPT);
+    }
+
+    @GetMapping("/publicos")
+    public ResponseEntity<byte[]> obtenerPerfilesPublicos(
+            @RequestParam(required = false) String despuesDe,
+            @RequestParam(defaultValue = "50") int limite,
+            @RequestParam(required = false) String paisResidencia,
+            @RequestParam(required = false) String organizacion,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request) throws IOException {
+        List<CampoPerfil> campos = VistaPerfil.campos(view, fields);
+        FormatoRespuesta formato = FormatoRespuesta.negociar(request);
+
+        // El ETag del listado se deriva de las claves y versiones de la página; no se envía
+        // Last-Modified porque una eliminación dentro de la página no cambia la fecha máxima
+        if (PerfilEtags.esCondicional(request)) {
+            List<PerfilVersion> versiones = perfilService.obtenerVersionesPublicas(
+                    despuesDe, limite, paisResidencia, organizacion);
+            String etag = formato.etag(
+                    PerfilEtags.etagListado(versiones, PerfilVersion::getUsuarioId, PerfilVersion::getUpdatedAt));
+            if (PerfilEtags.noModificado(request, etag, -1)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(PerfilEtags.etagNoModificado(request, etag))
+                        .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                        .build();
+            }
+        }
+
+        // Las filas se escriben directamente desde JDBC (sin entidad ni DTO) en un buffer,
+        // porque el ETag y el cursor siguiente deben enviarse en los headers antes del cuerpo
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(TAMANO_INICIAL_PAGINA);
+        List<PerfilVersion> versiones;
+        try (JsonGenerator generador = formato.crearGenerador(objectMapper, cuerpo)) {
+            versiones = perfilService.escribirPerfilesPublicos(
+                    despuesDe, limite, paisResidencia, organizacion, campos, generador);
+        }
+
+        // Si la página está llena puede haber más resultados: el cliente continúa desde el último usuarioId
+        ResponseEntity.BodyBuilder builder = ok(formato);
+        if (versiones.size() == limite) {
+            builder.header(HEADER_SIGUIENTE_CURSOR, versiones.get(versiones.size() - 1).getUsuarioId());
+        }
+        String etag = formato.etag(
+                PerfilEtags.etagListado(versiones, PerfilVersion::getUsuarioId, PerfilVersion::getUpdatedAt));
+        return conCodificacion(builder, etag, cuerpo.toByteArray(), request);
+    }
+
+    // Tomcat no comprime respuestas con ETag fuerte: se comprimen aquí y la variante gzip lleva su propio ETag.
+    // Tomcat tampoco vuelve a comprimir una respuesta que ya tiene Content-Encoding
+    private ResponseEntity<byte[]> conCodificacion(ResponseEntity.BodyBuilder builder, String etag, byte[] cuerpo,
+                                                   HttpServletRequest request) throws IOException {
+        builder.varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        boolean comprimir = aceptaGzip(request) && respuestasCache.comprimible(cuerpo.length);
+        if (etag != null) {
+            builder.eTag(comprimir ? PerfilEtags.gzip(etag) : etag);
+        }
+        if (comprimir) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip(cuerpo));
+        }
+        return builder.body(cuerpo);
+    }
+
+    @GetMapping("/publicos/buscar")
+    public ResponseEntity<byte[]> buscarPerfilesPublicos(
+            @RequestParam String q,
+            @RequestParam(required = false) String despuesDe,
+            @RequestParam(defaultValue = "20") int limite,
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields,
+            HttpServletRequest request) throws IOException {
+        List<CampoPerfil> campos = VistaPerfil.campos(view, fields);
+        FormatoRespuesta formato = FormatoRespuesta.negociar(request);
+
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(TAMANO_INICIAL_PAGINA);
+        List<CursorBusqueda> posiciones;
+        try (JsonGenerator generador = formato.crearGenerador(objectMapper, cuerpo)) {
+            posiciones = perfilService.buscarPerfilesPublicos(q, despuesDe, limite, campos, generador);
+        }
+
+        // Mismo contrato que /publicos: con la página llena, el header trae el cursor de la siguiente
+        ResponseEntity.BodyBuilder builder = ok(formato);
+        if (posiciones.size() == limite) {
+            builder.header(HEADER_SIGUIENTE_CURSOR, posiciones.get(posiciones.size() - 1).codificar());
+        }
+        return builder.body(cuerpo.toByteArray());
+    }
+
+    // Conteos por país y organización desde la tabla agregada, sin recorrer los perfiles
+    @GetMapping("/publicos/facetas")
+    public ResponseEntity<PerfilFacetasDTO> obtenerFacetasPublicas() {
+        return ResponseEntity.ok(perfilService.obtenerFacetasPublicas());
+    }
+
+    @GetMapping(value = "/publicos/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarPerfilesPublicos(
+            @RequestParam(required = false) String view,
+            @RequestParam(required = false) String fields) {
+        List<CampoPerfil> campos = VistaPerfil.campos(view, fields);
+        // Un perfil por línea (NDJSON), escrito desde cada fila a medida que se lee del cursor de base de datos
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                perfilService.exportarPerfilesPublicos(campos, generator);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @DeleteMapping("/{usuarioId}")
     public ResponseEntity<Void> eliminarPerfil(@PathVariable String usuarioId) {
-        log.info("DELETE /api/v1/perfiles/{}", usuarioId);
         perfilService.eliminarPerfil(usuarioId);
         return ResponseEntity.noContent().build();
     }
 
+    // Con If-Match la escritura solo se aplica sobre la versión que el cliente leyó (412 si cambió entretanto);
+    // sin el header se comporta como el POST
     @PutMapping("/{usuarioId}")
     public ResponseEntity<PerfilResponseDTO> actualizarPerfil(
             @PathVariable String usuarioId,
-            @Valid @RequestBody PerfilRequestDTO requestDTO) {
-        log.info("PUT /api/v1/perfiles/{}", usuarioId);
-        PerfilResponseDTO response = perfilService.crearOActualizarPerfil(usuarioId, requestDTO);
-        return ResponseEntity.ok(response);
+            @Valid @RequestBody PerfilRequestDTO requestDTO,
+            HttpServletRequest request) {
+        String ifMatch = request.getHeader(HttpHeaders.IF_MATCH);
+        PerfilResponseDTO response;
+        if (ifMatch == null) {
+            response = perfilService.crearOActualizarPerfil(usuarioId, requestDTO);
+        } else {
+            response = perfilService.actualizarPerfil(usuarioId, requestDTO,
+                    PerfilEtags.esCualquiera(ifMatch) ? null : PerfilEtags.versionesIfMatch(ifMatch));
+        }
+
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok();
+        if (response.getVersion() != null) {
+            builder.eTag(FormatoRespuesta.negociar(request)
+                    .etag(PerfilEtags.etag(response.getVersion(), response.getCreatedAt())));
+        }
+        return builder.body(response);
     }
 }
 
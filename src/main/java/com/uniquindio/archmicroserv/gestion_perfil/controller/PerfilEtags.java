@@ -0,0 +1,135 @@
+package com.uniquindio.archmicroserv.gestion_perfil.controller;
+
+import com.uniquindio.archmicroserv.gestion_perfil.repository.VersionEsperada;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cálculo de validadores HTTP (ETag a partir de la versión y el createdAt del perfil, Last-Modified a partir de
+ * updatedAt) y evaluación de If-None-Match / If-Modified-Since / If-Match sin necesidad de construir la
+ * representación completa.
+ */
+final class PerfilEtags {
+
+    private static final Pattern ETAG_VERSION = Pattern.compile("\"(\\d{1,18})\\.(\\d{1,18})(?:-[a-z]+)*\"");
+    private static final LocalDateTime EPOCA = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final String SUFIJO_GZIP = "-gzip";
+
+    private PerfilEtags() {
+    }
+
+    // ETag fuerte de un perfil: su columna version, que cambia en cada escritura efectiva, y su created_at en
+    // microsegundos, porque un perfil borrado y vuelto a crear empieza otra vez en la versión 0
+    static String etag(Long version, LocalDateTime createdAt) {
+        return "\"" + version + "." + microsegundos(createdAt) + "\"";
+    }
+
+    // La variante comprimida es otra representación: su ETag fuerte no puede ser el de la identidad
+    static String gzip(String etag) {
+        return etag.substring(0, etag.length() - 1) + SUFIJO_GZIP + "\"";
+    }
+
+    static long lastModified(LocalDateTime updatedAt) {
+        return updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    static <T> String etagListado(List<T> elementos, Function<T, String> usuarioId,
+                                  Function<T, LocalDateTime> updatedAt) {
+        StringBuilder contenido = new StringBuilder();
+        for (T elemento : elementos) {
+            LocalDateTime version = updatedAt.apply(elemento);
+            contenido.append(usuarioId.apply(elemento)).append(':')
+                    .append(version != null ? microsegundos(version) : 0).append('\n');
+        }
+        return "\"" + DigestUtils.md5DigestAsHex(contenido.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    static boolean esCondicional(HttpServletRequest request) {
+        return request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                || request.getHeader(HttpHeaders.IF_MODIFIED_SINCE) != null;
+    }
+
+    /**
+     * Si hay If-None-Match se usa solo ese validador; If-Modified-Since se evalúa únicamente
+     * en su ausencia (RFC 9110, sección 13.2.2). lastModified negativo indica que no aplica.
+     * {@code etag} es el de la identidad; también coincide su variante gzip, porque el cliente valida la
+     * representación que recibió y el servidor no sabe si volvería a comprimirla sin generar el cuerpo.
+     */
+    static boolean noModificado(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            String comprimido = gzip(etag);
+            for (String valor : valores(ifNoneMatch)) {
+                if (valor.equals("*") || valor.equals(etag) || valor.equals(comprimido)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (lastModified < 0) {
+            return false;
+        }
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            // Las fechas HTTP tienen precisión de segundos
+            return ifModifiedSince >= 0 && (lastModified / 1000 * 1000) <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            // Fecha mal formada: se ignora el header
+            return false;
+        }
+    }
+
+    // ETag del 304: el de la variante que el cliente validó
+    static String etagNoModificado(HttpServletRequest request, String etag) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        String comprimido = gzip(etag);
+        return ifNoneMatch != null && valores(ifNoneMatch).contains(comprimido) ? comprimido : etag;
+    }
+
+    // Valores de If-None-Match; la comparación es débil (RFC 9110, sección 13.1.2), así que se ignora W/
+    private static List<String> valores(String ifNoneMatch) {
+        List<String> valores = new ArrayList<>();
+        for (String candidato : ifNoneMatch.split(",")) {
+            String valor = candidato.trim();
+            valores.add(valor.startsWith("W/") ? valor.substring(2) : valor);
+        }
+        return valores;
+    }
+
+    static boolean esCualquiera(String ifMatch) {
+        return ifMatch.trim().equals("*");
+    }
+
+    /**
+     * Versiones aceptadas por If-Match. La comparación es fuerte (RFC 9110, sección 13.1.1): un ETag débil nunca
+     * coincide. Se acepta el ETag de cualquier representación (con sufijo de formato y de gzip). Una lista vacía
+     * indica que ninguna versión puede coincidir.
+     */
+    static List<VersionEsperada> versionesIfMatch(String ifMatch) {
+        List<VersionEsperada> versiones = new ArrayList<>();
+        for (String candidato : ifMatch.split(",")) {
+            Matcher matcher = ETAG_VERSION.matcher(candidato.trim());
+            if (matcher.matches()) {
+                versiones.add(new VersionEsperada(Long.parseLong(matcher.group(1)),
+                        EPOCA.plus(Long.parseLong(matcher.group(2)), ChronoUnit.MICROS)));
+            }
+        }
+        return versiones;
+    }
+
+    private static long microsegundos(LocalDateTime fecha) {
+        // PostgreSQL guarda microsegundos; se trunca para que el valor en memoria coincida con el persistido
+        return ChronoUnit.MICROS.between(EPOCA, fecha.truncatedTo(ChronoUnit.MICROS));
+    }
+}
@@ -0,0 +1,23 @@
+package com.uniquindio.archmicroserv.gestion_perfil.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PerfilBatchItemDTO {
+
+    public enum Estado {
+        CREADO,
+        ACTUALIZADO,
+        RECHAZADO
+    }
+
+    private String usuarioId;
+    private Estado estado;
+    private String mensaje;
+}
@@ -0,0 +1,22 @@
+package com.uniquindio.archmicroserv.gestion_perfil.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PerfilBatchRequestDTO {
+
+    @NotEmpty(message = "Debe enviar al menos un perfil")
+    @Size(max = 1000, message = "No se pueden enviar más de 1000 perfiles por lote")
+    private Map<String, @Valid PerfilRequestDTO> perfiles;
+}
@@ -0,0 +1,20 @@
+package com.uniquindio.archmicroserv.gestion_perfil.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PerfilBatchResponseDTO {
+
+    private int creados;
+    private int actualizados;
+    private int rechazados;
+    private List<PerfilBatchItemDTO> resultados;
+}
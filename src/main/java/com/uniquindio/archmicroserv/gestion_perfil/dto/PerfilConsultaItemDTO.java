@@ -0,0 +1,17 @@
+package com.uniquindio.archmicroserv.gestion_perfil.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PerfilConsultaItemDTO {
+
+    private String usuarioId;
+    private boolean encontrado;
+    private PerfilResponseDTO perfil;
+}
@@ -0,0 +1,21 @@
+package com.uniquindio.archmicroserv.gestion_perfil.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Número de perfiles públicos por valor de cada faceta, de mayor a menor.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PerfilFacetasDTO {
+
+    private Map<String, Long> paisResidencia;
+    private Map<String, Long> organizacion;
+}
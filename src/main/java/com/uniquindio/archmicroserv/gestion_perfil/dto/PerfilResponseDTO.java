@@ -29,5 +29,6 @@ public class PerfilResponseDTO {
     private String linkOtraRed;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Long version;
 }
 
@@ -0,0 +1,11 @@
+package com.uniquindio.archmicroserv.gestion_perfil.exceptions;
+
+/**
+ * Parámetro de la petición fuera de lo permitido (límite, cursor, fields, view...): 400 Bad Request.
+ * Las demás IllegalArgumentException son errores internos y responden 500.
+ */
+public class ParametroInvalidoException extends RuntimeException {
+    public ParametroInvalidoException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package com.uniquindio.archmicroserv.gestion_perfil.exceptions;
+
+/**
+ * El perfil no existe o cambió desde la versión indicada en If-Match (412 Precondition Failed).
+ */
+public class PerfilVersionMismatchException extends RuntimeException {
+    public PerfilVersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,30 @@
+package com.uniquindio.archmicroserv.gestion_perfil.messaging;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Evento de gestorperfil.queue ya validado: tipo de acción y usuario afectado.
+ */
+public record EventoPerfil(String tipoAccion, String usuarioId) {
+
+    public static final String REGISTRO_USUARIO = "REGISTRO_USUARIO";
+    public static final String PERFIL_ACTUALIZADO = "PERFIL_ACTUALIZADO";
+
+    /**
+     * Extrae el evento del mensaje recibido; vacío si no trae payload o usuario.
+     */
+    @SuppressWarnings("unchecked")
+    public static Optional<EventoPerfil> desdeMapa(Map<String, Object> evento) {
+        Object payloadObj = evento.get("payload");
+        if (!(payloadObj instanceof Map)) {
+            return Optional.empty();
+        }
+        Object usuario = ((Map<String, Object>) payloadObj).get("usuario");
+        if (!(usuario instanceof String usuarioId) || usuarioId.isEmpty()) {
+            return Optional.empty();
+        }
+        Object tipoAccion = evento.get("tipoAccion");
+        return Optional.of(new EventoPerfil(tipoAccion instanceof String tipo ? tipo : null, usuarioId));
+    }
+}
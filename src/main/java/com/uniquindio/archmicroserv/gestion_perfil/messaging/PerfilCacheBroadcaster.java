@@ -0,0 +1,67 @@
+package com.uniquindio.archmicroserv.gestion_perfil.messaging;
+
+import com.uniquindio.archmicroserv.gestion_perfil.config.RabbitMQConfig;
+import com.uniquindio.archmicroserv.gestion_perfil.service.EscriturasRecientes;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilCacheInvalidator;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilModificadoEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Propaga las invalidaciones de la caché de perfiles al resto de réplicas del servicio
+ * mediante el exchange fanout de invalidación.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(
+	prefix = "spring.rabbitmq",
+	name = "host",
+	matchIfMissing = false
+)
+@Profile("!test")
+public class PerfilCacheBroadcaster {
+
+    // Identifica a esta réplica para ignorar sus propias invalidaciones
+    private static final String NODO_ID = UUID.randomUUID().toString();
+
+    private final RabbitTemplate rabbitTemplate;
+    private final PerfilCacheInvalidator perfilCacheInvalidator;
+    private final EscriturasRecientes escriturasRecientes;
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPerfilModificado(PerfilModificadoEvent evento) {
+        try {
+            rabbitTemplate.convertAndSend(RabbitMQConfig.CACHE_INVALIDACION_EXCHANGE, "",
+                    Map.of("usuarioId", evento.usuarioId(), "nodo", NODO_ID));
+        } catch (Exception e) {
+            // La expiración por tiempo de la caché acota la inconsistencia si el broker no está disponible
+            log.warn("No se pudo propagar la invalidación del perfil {}: {}", evento.usuarioId(), e.getMessage());
+        }
+    }
+
+    @RabbitListener(queues = "#{perfilCacheInvalidacionQueue.name}")
+    public void onInvalidacionRemota(Map<String, Object> mensaje) {
+        if (NODO_ID.equals(mensaje.get("nodo"))) {
+            return;
+        }
+        Object usuarioId = mensaje.get("usuarioId");
+        if (usuarioId instanceof String id) {
+            // La réplica de lectura puede no tener aún el cambio: leer del primario para no cachear la versión anterior
+            escriturasRecientes.registrar(id);
+            perfilCacheInvalidator.invalidarLocal(id);
+        }
+    }
+}
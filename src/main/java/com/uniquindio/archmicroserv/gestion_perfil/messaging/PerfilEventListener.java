@@ -1,14 +1,34 @@
 package com.uniquindio.archmicroserv.gestion_perfil.messaging;
 
+import com.rabbitmq.client.Channel;
 import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Profile;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 @Component
 @RequiredArgsConstructor
@@ -22,45 +42,25 @@ import java.util.Map;
 public class PerfilEventListener {
 
     private final PerfilService perfilService;
+    private final MessageConverter messageConverter;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, Counter> eventosPorTipo = new ConcurrentHashMap<>();
 
-    @RabbitListener(queues = "gestorperfil.queue")
-    @SuppressWarnings("unchecked")
+    // Consumo mensaje a mensaje; solo arranca si el modo por lotes está desactivado
+    @RabbitListener(queues = "gestorperfil.queue",
+            autoStartup = "#{!${gestorperfil.listener.batch.enabled:false}}")
     public void handlePerfilEvent(Map<String, Object> evento) {
         try {
-            log.info("📥 Evento recibido en gestorperfil.queue: {}", evento);
-            
-            String tipoAccion = (String) evento.get("tipoAccion");
-            Object payloadObj = evento.get("payload");
-            Map<String, Object> payload = payloadObj instanceof Map ? (Map<String, Object>) payloadObj : null;
+            log.debug("📥 Evento recibido en gestorperfil.queue: {}", evento.get("tipoAccion"));
             
-            if (payload == null) {
-                log.warn("⚠️ Payload vacío en evento: {}", evento);
+            Optional<EventoPerfil> eventoPerfil = EventoPerfil.desdeMapa(evento);
+            if (eventoPerfil.isEmpty()) {
+                log.warn("⚠️ Payload o usuario vacío en evento: {}", evento);
                 return;
             }
-            
-            String usuarioId = (String) payload.get("usuario");
-            
-            if (usuarioId == null || usuarioId.isEmpty()) {
-                log.warn("⚠️ Usuario no encontrado en payload: {}", payload);
-                return;
-            }
-            
-            log.info("Procesando evento de tipo: {} para usuario: {}", tipoAccion, usuarioId);
-            
-            // Por ahora, solo logueamos. En el futuro se pueden agregar más acciones
-            // como crear perfil automáticamente cuando se registra un usuario
-            switch (tipoAccion) {
-                case "REGISTRO_USUARIO":
-                    log.info("Usuario registrado: {}. Se puede crear perfil por defecto si es necesario.", usuarioId);
-                    // Aquí se podría crear un perfil por defecto automáticamente
-                    break;
-                case "PERFIL_ACTUALIZADO":
-                    log.info("Perfil actualizado para usuario: {}", usuarioId);
-                    break;
-                default:
-                    log.debug("Evento de tipo desconocido: {} para usuario: {}", tipoAccion, usuarioId);
-                    break;
-            }
+
+            registrarMetricas(procesarGrupos(List.of(List.of(eventoPerfil.get()))));
             
         } catch (Exception e) {
             log.error("❌ Error procesando evento de perfil: {}", evento, e);
@@ -68,5 +68,171 @@ public class PerfilEventListener {
             throw new RuntimeException("Error procesando evento de perfil", e);
         }
     }
-}
 
+    /**
+     * Consumo por lotes (gestorperfil.listener.batch.enabled=true): los eventos se agrupan por usuario
+     * y el lote completo se procesa en una transacción. Si el lote falla, cada usuario se reintenta
+     * por separado para que solo se rechacen (nack) los mensajes que realmente fallan. Un error transitorio
+     * de la base de datos reencola el mensaje una vez; si falla de nuevo, o el error no es transitorio,
+     * el mensaje va a gestorperfil.queue.dlq.
+     */
+    @RabbitListener(queues = "gestorperfil.queue",
+            containerFactory = "rabbitBatchListenerContainerFactory",
+            autoStartup = "${gestorperfil.listener.batch.enabled:false}")
+    @SuppressWarnings("unchecked")
+    public void handlePerfilEvents(List<Message> mensajes, Channel channel) throws IOException {
+        Map<String, List<Entrega>> porUsuario = new LinkedHashMap<>();
+        List<Long> descartados = new ArrayList<>();
+
+        for (Message mensaje : mensajes) {
+            long deliveryTag = mensaje.getMessageProperties().getDeliveryTag();
+            boolean reentregado = Boolean.TRUE.equals(mensaje.getMessageProperties().getRedelivered());
+            try {
+                Object cuerpo = messageConverter.fromMessage(mensaje);
+                Optional<EventoPerfil> evento = cuerpo instanceof Map
+                        ? EventoPerfil.desdeMapa((Map<String, Object>) cuerpo)
+                        : Optional.empty();
+                if (evento.isEmpty()) {
+                    // Igual que en el consumo individual: un evento sin usuario se descarta sin error
+                    log.warn("⚠️ Payload o usuario vacío en evento: {}", cuerpo);
+                    descartados.add(deliveryTag);
+                    continue;
+                }
+                porUsuario.computeIfAbsent(evento.get().usuarioId(), id -> new ArrayList<>())
+                        .add(new Entrega(deliveryTag, reentregado, evento.get()));
+            } catch (Exception e) {
+                // Reintentar no lo hará legible: directo a la DLQ
+                log.error("❌ Mensaje ilegible en gestorperfil.queue (deliveryTag {})", deliveryTag, e);
+                channel.basicNack(deliveryTag, false, false);
+            }
+        }
+        for (Long deliveryTag : descartados) {
+            channel.basicAck(deliveryTag, false);
+        }
+        if (porUsuario.isEmpty()) {
+            return;
+        }
+
+        log.debug("Procesando lote de {} mensajes para {} usuarios", mensajes.size(), porUsuario.size());
+        Timer.Sample muestraLote = Timer.start(meterRegistry);
+        try {
+            Procesado procesado = transactionTemplate.execute(status -> procesarGrupos(eventos(porUsuario.values())));
+            confirmar(channel, porUsuario.values(), procesado);
+        } catch (Exception e) {
+            log.warn("Falló el lote de {} usuarios; se reintenta cada usuario por separado", porUsuario.size(), e);
+            for (List<Entrega> grupo : porUsuario.values()) {
+                try {
+                    Procesado procesado = transactionTemplate.execute(status -> procesarGrupos(eventos(List.of(grupo))));
+                    confirmar(channel, List.of(grupo), procesado);
+                } catch (Exception errorGrupo) {
+                    log.error("❌ Error procesando eventos del usuario {}", grupo.get(0).evento().usuarioId(), errorGrupo);
+                    rechazar(channel, grupo, errorGrupo);
+                }
+            }
+        } finally {
+            muestraLote.stop(Timer.builder("perfil.listener.lotes")
+                    .description("Procesamiento completo de un lote de gestorperfil.queue")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    // No registra métricas: la transacción del lote aún puede revertirse y el lote reintentarse por usuario
+    private Procesado procesarGrupos(Collection<List<EventoPerfil>> grupos) {
+        List<String> tipos = new ArrayList<>();
+        List<String> registrados = new ArrayList<>();
+        for (List<EventoPerfil> grupo : grupos) {
+            for (EventoPerfil evento : grupo) {
+                log.debug("Procesando evento de tipo: {} para usuario: {}", evento.tipoAccion(), evento.usuarioId());
+                tipos.add(evento.tipoAccion());
+                if (EventoPerfil.REGISTRO_USUARIO.equals(evento.tipoAccion())) {
+                    registrados.add(evento.usuarioId());
+                } else if (EventoPerfil.PERFIL_ACTUALIZADO.equals(evento.tipoAccion())) {
+                    log.debug("Perfil actualizado para usuario: {}", evento.usuarioId());
+                } else {
+                    log.debug("Evento de tipo desconocido: {} para usuario: {}", evento.tipoAccion(), evento.usuarioId());
+                }
+            }
+        }
+
+        // Todos los registros del lote se crean con una sola sentencia (insert-if-absent)
+        long nanosRegistro = 0;
+        if (!registrados.isEmpty()) {
+            long inicio = meterRegistry.config().clock().monotonicTime();
+            int creados = perfilService.provisionarPerfilesPorDefecto(registrados);
+            nanosRegistro = meterRegistry.config().clock().monotonicTime() - inicio;
+            log.debug("Usuarios registrados: {}, perfiles por defecto creados: {}", registrados.size(), creados);
+        }
+        return new Procesado(tipos, registrados.size(), nanosRegistro);
+    }
+
+    // El timer mide la sentencia de registro y el resumen cuántos usuarios llevaba, para no confundir latencia
+    // con tamaño de lote. Solo se llama con el trabajo confirmado, una vez por lote o usuario que hizo commit
+    private void registrarMetricas(Procesado procesado) {
+        for (String tipoAccion : procesado.tipos()) {
+            contadorEventos(tipoAccion).increment();
+        }
+        if (procesado.registrados() > 0) {
+            Timer.builder("perfil.listener.registros")
+                    .description("Creación de los perfiles por defecto de los REGISTRO_USUARIO de un lote")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(procesado.nanosRegistro(), TimeUnit.NANOSECONDS);
+            DistributionSummary.builder("perfil.listener.registros.usuarios")
+                    .description("Usuarios registrados por sentencia de creación de perfiles por defecto")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(procesado.registrados());
+        }
+    }
+
+    // Los tipos no reconocidos comparten una etiqueta para no disparar la cardinalidad de la métrica
+    private Counter contadorEventos(String tipoAccion) {
+        String tipo = EventoPerfil.REGISTRO_USUARIO.equals(tipoAccion) || EventoPerfil.PERFIL_ACTUALIZADO.equals(tipoAccion)
+                ? tipoAccion
+                : "DESCONOCIDO";
+        return eventosPorTipo.computeIfAbsent(tipo, t -> Counter.builder("perfil.listener.eventos")
+                .description("Eventos de gestorperfil.queue procesados por tipo")
+                .tag("tipoAccion", t)
+                .register(meterRegistry));
+    }
+
+    private static List<List<EventoPerfil>> eventos(Collection<List<Entrega>> grupos) {
+        return grupos.stream()
+                .map(grupo -> grupo.stream().map(Entrega::evento).toList())
+                .toList();
+    }
+
+    // Se llama tras el commit: las métricas cuentan cada evento una sola vez aunque el lote se haya reintentado
+    private void confirmar(Channel channel, Collection<List<Entrega>> grupos, Procesado procesado)
+            throws IOException {
+        registrarMetricas(procesado);
+        for (List<Entrega> grupo : grupos) {
+            for (Entrega entrega : grupo) {
+                channel.basicAck(entrega.deliveryTag(), false);
+            }
+        }
+    }
+
+    // Un error transitorio se reintenta con una reentrega; el resto, o el segundo fallo, va a la DLQ
+    private static void rechazar(Channel channel, List<Entrega> grupo, Exception error) throws IOException {
+        boolean transitorio = esTransitorio(error);
+        for (Entrega entrega : grupo) {
+            channel.basicNack(entrega.deliveryTag(), false, transitorio && !entrega.reentregado());
+        }
+    }
+
+    // Conexión caída, timeout, deadlock o fallo de serialización: la misma operación puede funcionar más tarde
+    private static boolean esTransitorio(Exception error) {
+        return error instanceof TransientDataAccessException
+                || error instanceof RecoverableDataAccessException
+                || error instanceof CannotCreateTransactionException;
+    }
+
+    private record Entrega(long deliveryTag, boolean reentregado, EventoPerfil evento) {
+    }
+
+    // Lo que un lote procesó, para registrar las métricas después del commit
+    private record Procesado(List<String> tipos, int registrados, long nanosRegistro) {
+    }
+}
@@ -0,0 +1,151 @@
+package com.uniquindio.archmicroserv.gestion_perfil.messaging;
+
+import com.uniquindio.archmicroserv.gestion_perfil.config.RabbitMQConfig;
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilOutbox;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilOutboxRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Publica en RabbitMQ los eventos pendientes del outbox, fuera del camino de las peticiones HTTP.
+ * Cada lote se reclama y se confirma en una transacción corta antes de publicarlo, de modo que la espera
+ * a las confirmaciones del broker no retiene bloqueos ni una conexión del pool. El lote se envía por un
+ * mismo canal en orden de id y se borra cuando el broker lo confirma; si algo falla se libera y se reintenta
+ * en la siguiente ejecución (entrega al menos una vez: los consumidores deben deduplicar por messageId).
+ * Entre réplicas, los eventos de un usuario se publican en orden: no se reclama ninguno mientras otro relay
+ * tenga reclamado uno de ese usuario. Si una réplica cae tras reclamar, sus eventos esperan a que venza el
+ * reclamo (gestorperfil.outbox.relay.plazo-reclamo-ms), que debe superar el timeout de confirmación.
+ * Los mensajes se envían con mandatory: un evento que el broker devuelve por no tener ruta
+ * se confirma igualmente, así que su fila se conserva en el outbox en lugar de borrarse.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(
+	prefix = "spring.rabbitmq",
+	name = "host",
+	matchIfMissing = false
+)
+@Profile("!test")
+public class PerfilOutboxRelay {
+
+    private final PerfilOutboxRepository outboxRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int tamanoLote;
+    private final long timeoutConfirmacion;
+    private final long plazoReclamo;
+    // messageId de los eventos devueltos por el broker durante el lote en curso
+    private final Set<String> devueltos = ConcurrentHashMap.newKeySet();
+
+    public PerfilOutboxRelay(PerfilOutboxRepository outboxRepository,
+                             RabbitTemplate rabbitTemplate,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${gestorperfil.outbox.relay.tamano-lote:200}") int tamanoLote,
+                             @Value("${gestorperfil.outbox.relay.timeout-confirmacion-ms:5000}") long timeoutConfirmacion,
+                             @Value("${gestorperfil.outbox.relay.plazo-reclamo-ms:60000}") long plazoReclamo) {
+        this.outboxRepository = outboxRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanoLote = tamanoLote;
+        this.timeoutConfirmacion = timeoutConfirmacion;
+        this.plazoReclamo = plazoReclamo;
+        this.rabbitTemplate.setReturnsCallback(this::registrarDevuelto);
+    }
+
+    @Scheduled(fixedDelayString = "${gestorperfil.outbox.relay.intervalo-ms:500}")
+    public void publicarPendientes() {
+        try {
+            int publicados;
+            do {
+                publicados = publicarLote();
+            } while (publicados == tamanoLote);
+        } catch (Exception e) {
+            log.warn("No se pudo publicar el outbox de perfiles, se reintentará: {}", e.getMessage());
+        }
+    }
+
+    private int publicarLote() {
+        List<PerfilOutbox> pendientes = transactionTemplate.execute(status -> {
+            outboxRepository.bloquearReclamos();
+            return outboxRepository.reclamarPendientes(tamanoLote, plazoReclamo);
+        });
+        if (pendientes == null || pendientes.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> sinRuta;
+        try {
+            sinRuta = rabbitTemplate.invoke(operaciones -> {
+                devueltos.clear();
+                for (PerfilOutbox evento : pendientes) {
+                    operaciones.send(RabbitMQConfig.PERFILES_EVENTOS_EXCHANGE,
+                            evento.getTipoEvento().getRoutingKey(), toMessage(evento));
+                }
+                // El broker envía el basic.return de un mensaje antes de su ack
+                operaciones.waitForConfirmsOrDie(timeoutConfirmacion);
+                return Set.copyOf(devueltos);
+            });
+        } catch (RuntimeException e) {
+            // Sin confirmación no se sabe qué llegó: se libera todo y se reenvía en la siguiente ejecución
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.liberar(ids(pendientes)));
+            throw e;
+        }
+
+        Map<Boolean, List<PerfilOutbox>> porResultado = pendientes.stream()
+                .collect(Collectors.partitioningBy(
+                        evento -> sinRuta == null || !sinRuta.contains(String.valueOf(evento.getId()))));
+        List<PerfilOutbox> publicados = porResultado.get(true);
+        List<PerfilOutbox> conservados = porResultado.get(false);
+        if (!conservados.isEmpty()) {
+            log.warn("{} eventos de perfil no tienen ruta en {} y se conservan en el outbox",
+                    conservados.size(), RabbitMQConfig.PERFILES_EVENTOS_EXCHANGE);
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            outboxRepository.deleteAllByIdInBatch(ids(publicados));
+            if (!conservados.isEmpty()) {
+                outboxRepository.liberar(ids(conservados));
+            }
+        });
+        log.debug("Publicados {} eventos de perfil", publicados.size());
+        // Solo cuentan los borrados: si todo el lote se devolvió no se vuelve a intentar hasta la siguiente ejecución
+        return publicados.size();
+    }
+
+    private void registrarDevuelto(ReturnedMessage devuelto) {
+        String messageId = devuelto.getMessage().getMessageProperties().getMessageId();
+        if (messageId != null && RabbitMQConfig.PERFILES_EVENTOS_EXCHANGE.equals(devuelto.getExchange())) {
+            devueltos.add(messageId);
+        }
+    }
+
+    private static List<Long> ids(List<PerfilOutbox> eventos) {
+        return eventos.stream().map(PerfilOutbox::getId).toList();
+    }
+
+    private static Message toMessage(PerfilOutbox evento) {
+        return MessageBuilder.withBody(evento.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setMessageId(String.valueOf(evento.getId()))
+                .setDeliveryMode(MessageDeliveryMode.PERSISTENT)
+                .build();
+    }
+}
@@ -2,17 +2,25 @@ package com.uniquindio.archmicroserv.gestion_perfil.model;
 
 import java.time.LocalDateTime;
 
+import jakarta.persistence.Basic;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
+import org.springframework.data.domain.Persistable;
 
 @Entity
 @Table(name = "perfiles")
@@ -21,7 +29,7 @@ import lombok.Setter;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
-public class Perfil {
+public class Perfil implements Persistable<String> {
 
     @Id
     @Column(name = "usuario_id", length = 255)
@@ -40,6 +48,8 @@ public class Perfil {
     @Column(name = "direccion_correspondencia", length = 500)
     private String direccionCorrespondencia;
 
+    // Carga diferida (requiere el enhancement de Hibernate del pom): las consultas de entidades no traen el TEXT
+    @Basic(fetch = FetchType.LAZY)
     @Column(name = "biografia", columnDefinition = "TEXT")
     private String biografia;
 
@@ -73,6 +83,34 @@ public class Perfil {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Concurrencia optimista: aumenta con cada cambio (también en el upsert nativo) y es el ETag del perfil
+    @Version
+    @Column(name = "version", nullable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long version = 0L;
+
+    // El id es asignado (usuarioId): sin esta marca, save() haría un merge con un SELECT previo por cada perfil nuevo
+    @Transient
+    @Builder.Default
+    private boolean nuevo = true;
+
+    @Override
+    public String getId() {
+        return usuarioId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return nuevo;
+    }
+
+    @PostLoad
+    @PostPersist
+    protected void marcarPersistido() {
+        nuevo = false;
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
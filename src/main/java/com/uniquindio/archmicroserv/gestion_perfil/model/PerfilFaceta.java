@@ -0,0 +1,57 @@
+package com.uniquindio.archmicroserv.gestion_perfil.model;
+
+import java.io.Serializable;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Número de perfiles públicos con un mismo país de residencia u organización. PerfilService lo
+ * actualiza en la misma transacción que el perfil y PerfilFacetasService lo reconcilia periódicamente.
+ */
+@Entity
+@Table(name = "perfil_facetas")
+@IdClass(PerfilFaceta.Clave.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PerfilFaceta {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", length = 50)
+    private Tipo tipo;
+
+    @Id
+    @Column(name = "valor", length = 255)
+    private String valor;
+
+    @Column(name = "total", nullable = false)
+    private long total;
+
+    public enum Tipo {
+        PAIS_RESIDENCIA,
+        ORGANIZACION
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Clave implements Serializable {
+        private Tipo tipo;
+        private String valor;
+    }
+}
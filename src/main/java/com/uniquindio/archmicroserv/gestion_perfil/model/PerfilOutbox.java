@@ -0,0 +1,73 @@
+package com.uniquindio.archmicroserv.gestion_perfil.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Evento de cambio de perfil pendiente de publicar en RabbitMQ. Se escribe en la misma
+ * transacción que el perfil y se elimina cuando el broker confirma la publicación.
+ */
+@Entity
+@Table(name = "perfil_outbox")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PerfilOutbox {
+
+    // Secuencia (no IDENTITY) para que los INSERT del endpoint de lote sigan agrupándose en JDBC batches
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "perfil_outbox_seq")
+    @SequenceGenerator(name = "perfil_outbox_seq", sequenceName = "perfil_outbox_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "usuario_id", nullable = false, length = 255)
+    private String usuarioId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo_evento", nullable = false, length = 50)
+    private TipoEvento tipoEvento;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    public enum TipoEvento {
+        PERFIL_CREADO("perfil.creado"),
+        PERFIL_ACTUALIZADO("perfil.actualizado"),
+        PERFIL_ELIMINADO("perfil.eliminado");
+
+        private final String routingKey;
+
+        TipoEvento(String routingKey) {
+            this.routingKey = routingKey;
+        }
+
+        public String getRoutingKey() {
+            return routingKey;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.uniquindio.archmicroserv.gestion_perfil.exceptions.ParametroInvalidoException;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Propiedades de PerfilResponseDTO con su columna en la tabla perfiles, en el mismo orden en que
+ * Jackson serializa el DTO. Permite escribir una fila de JDBC directamente como JSON.
+ */
+public enum CampoPerfil {
+
+    USUARIO_ID("usuarioId", "usuario_id", Tipo.TEXTO),
+    URL_PAGINA_PERSONAL("urlPaginaPersonal", "url_pagina_personal", Tipo.TEXTO),
+    APODO("apodo", "apodo", Tipo.TEXTO),
+    INFORMACION_CONTACTO_PUBLICA("informacionContactoPublica", "informacion_contacto_publica", Tipo.BOOLEANO),
+    DIRECCION_CORRESPONDENCIA("direccionCorrespondencia", "direccion_correspondencia", Tipo.TEXTO),
+    BIOGRAFIA("biografia", "biografia", Tipo.TEXTO),
+    ORGANIZACION("organizacion", "organizacion", Tipo.TEXTO),
+    PAIS_RESIDENCIA("paisResidencia", "pais_residencia", Tipo.TEXTO),
+    LINK_FACEBOOK("linkFacebook", "link_facebook", Tipo.TEXTO),
+    LINK_TWITTER("linkTwitter", "link_twitter", Tipo.TEXTO),
+    LINK_LINKEDIN("linkLinkedIn", "link_linkedin", Tipo.TEXTO),
+    LINK_INSTAGRAM("linkInstagram", "link_instagram", Tipo.TEXTO),
+    LINK_GITHUB("linkGithub", "link_github", Tipo.TEXTO),
+    LINK_OTRA_RED("linkOtraRed", "link_otra_red", Tipo.TEXTO),
+    CREATED_AT("createdAt", "created_at", Tipo.FECHA),
+    UPDATED_AT("updatedAt", "updated_at", Tipo.FECHA),
+    VERSION("version", "version", Tipo.ENTERO);
+
+    private final String propiedad;
+    private final SerializedString nombreJson;
+    private final String columna;
+    private final Tipo tipo;
+
+    CampoPerfil(String propiedad, String columna, Tipo tipo) {
+        this.propiedad = propiedad;
+        this.nombreJson = new SerializedString(propiedad);
+        this.columna = columna;
+        this.tipo = tipo;
+    }
+
+    public String getPropiedad() {
+        return propiedad;
+    }
+
+    public String getColumna() {
+        return columna;
+    }
+
+    public static String columnas(Collection<CampoPerfil> campos) {
+        return campos.stream().map(CampoPerfil::getColumna).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Interpreta el parámetro {@code fields} (propiedades separadas por comas). El resultado sigue el orden
+     * de PerfilResponseDTO, sin repetidos, sea cual sea el orden pedido.
+     *
+     * @throws ParametroInvalidoException si está vacío o contiene una propiedad desconocida
+     */
+    public static List<CampoPerfil> desdePropiedades(String propiedades) {
+        EnumSet<CampoPerfil> campos = EnumSet.noneOf(CampoPerfil.class);
+        for (String propiedad : propiedades.split(",")) {
+            String nombre = propiedad.trim();
+            if (nombre.isEmpty()) {
+                continue;
+            }
+            campos.add(Arrays.stream(values())
+                    .filter(campo -> campo.propiedad.equals(nombre))
+                    .findFirst()
+                    .orElseThrow(() -> new ParametroInvalidoException("Campo desconocido: " + nombre
+                            + " (campos permitidos: " + Arrays.stream(values())
+                            .map(CampoPerfil::getPropiedad)
+                            .collect(Collectors.joining(", ")) + ")")));
+        }
+        if (campos.isEmpty()) {
+            throw new ParametroInvalidoException("El parámetro fields debe indicar al menos un campo");
+        }
+        return List.copyOf(campos);
+    }
+
+    /**
+     * Escribe la propiedad con el valor de la columna {@code indice} de la fila actual. Los nulos se
+     * escriben como null y las fechas en ISO-8601, igual que la serialización del DTO.
+     */
+    public void escribir(ResultSet rs, int indice, JsonGenerator generador) throws SQLException, IOException {
+        generador.writeFieldName(nombreJson);
+        switch (tipo) {
+            case TEXTO -> {
+                String valor = rs.getString(indice);
+                if (valor == null) {
+                    generador.writeNull();
+                } else {
+                    generador.writeString(valor);
+                }
+            }
+            case BOOLEANO -> {
+                boolean valor = rs.getBoolean(indice);
+                if (rs.wasNull()) {
+                    generador.writeNull();
+                } else {
+                    generador.writeBoolean(valor);
+                }
+            }
+            case ENTERO -> {
+                long valor = rs.getLong(indice);
+                if (rs.wasNull()) {
+                    generador.writeNull();
+                } else {
+                    generador.writeNumber(valor);
+                }
+            }
+            case FECHA -> {
+                LocalDateTime valor = rs.getObject(indice, LocalDateTime.class);
+                if (valor == null) {
+                    generador.writeNull();
+                } else {
+                    generador.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(valor));
+                }
+            }
+        }
+    }
+
+    private enum Tipo {
+        TEXTO, BOOLEANO, ENTERO, FECHA
+    }
+}
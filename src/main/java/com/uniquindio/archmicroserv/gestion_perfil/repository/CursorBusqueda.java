@@ -0,0 +1,34 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.uniquindio.archmicroserv.gestion_perfil.exceptions.ParametroInvalidoException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición de un resultado de búsqueda: los resultados se ordenan por relevancia descendente y, a igual
+ * relevancia, por usuarioId. El cliente recibe el cursor codificado y lo envía tal cual en despuesDe.
+ */
+public record CursorBusqueda(float rango, String usuarioId) {
+
+    private static final char SEPARADOR = ':';
+
+    public String codificar() {
+        // Float.toString es exacto para ida y vuelta, igual que el real (float4) de ts_rank
+        String valor = Float.toString(rango) + SEPARADOR + usuarioId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws ParametroInvalidoException si el cursor no fue generado por {@link #codificar()}
+     */
+    public static CursorBusqueda decodificar(String cursor) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = valor.indexOf(SEPARADOR);
+            return new CursorBusqueda(Float.parseFloat(valor.substring(0, separador)), valor.substring(separador + 1));
+        } catch (RuntimeException e) {
+            throw new ParametroInvalidoException("Cursor de búsqueda inválido: " + cursor);
+        }
+    }
+}
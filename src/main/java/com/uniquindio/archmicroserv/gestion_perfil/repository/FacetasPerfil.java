@@ -0,0 +1,18 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+
+/**
+ * Columnas de un perfil que determinan en qué facetas cuenta: solo los perfiles públicos cuentan.
+ */
+public record FacetasPerfil(boolean publico, String paisResidencia, String organizacion) {
+
+    public FacetasPerfil(Boolean publico, String paisResidencia, String organizacion) {
+        this(Boolean.TRUE.equals(publico), paisResidencia, organizacion);
+    }
+
+    public static FacetasPerfil de(Perfil perfil) {
+        return new FacetasPerfil(perfil.getInformacionContactoPublica(), perfil.getPaisResidencia(),
+                perfil.getOrganizacion());
+    }
+}
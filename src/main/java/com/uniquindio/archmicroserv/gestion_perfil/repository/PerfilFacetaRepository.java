@@ -0,0 +1,56 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilFaceta;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PerfilFacetaRepository extends JpaRepository<PerfilFaceta, PerfilFaceta.Clave> {
+
+    // Lee la tabla agregada: el costo depende del número de facetas, no del de perfiles
+    @Query("SELECT f FROM PerfilFaceta f WHERE f.total > 0 ORDER BY f.tipo, f.total DESC, f.valor")
+    List<PerfilFaceta> findVigentes();
+
+    @Modifying
+    @Query(value = """
+            INSERT INTO perfil_facetas (tipo, valor, total) VALUES (:tipo, :valor, :delta)
+            ON CONFLICT (tipo, valor) DO UPDATE SET total = perfil_facetas.total + EXCLUDED.total
+            """, nativeQuery = true)
+    void sumar(@Param("tipo") String tipo, @Param("valor") String valor, @Param("delta") long delta);
+
+    // Una sola réplica reconcilia a la vez; las demás omiten la ejecución en lugar de esperar
+    @Query(value = "SELECT pg_try_advisory_xact_lock(hashtext('perfil_facetas'))", nativeQuery = true)
+    boolean bloquearReconciliacion();
+
+    // Espera a las transacciones que ya sumaron deltas y detiene las nuevas hasta el commit: el recuento
+    // siguiente incluye a las primeras, y las segundas suman sobre el valor ya corregido
+    @Modifying
+    @Query(value = "LOCK TABLE perfil_facetas IN SHARE ROW EXCLUSIVE MODE", nativeQuery = true)
+    void bloquearEscrituras();
+
+    @Modifying
+    @Query(value = """
+            WITH reales AS (
+                SELECT 'PAIS_RESIDENCIA' AS tipo, pais_residencia AS valor, count(*) AS total FROM perfiles
+                WHERE informacion_contacto_publica = true AND pais_residencia ~ '\\S'
+                GROUP BY pais_residencia
+                UNION ALL
+                SELECT 'ORGANIZACION', organizacion, count(*) FROM perfiles
+                WHERE informacion_contacto_publica = true AND organizacion ~ '\\S'
+                GROUP BY organizacion
+            ), obsoletas AS (
+                DELETE FROM perfil_facetas f
+                WHERE NOT EXISTS (SELECT 1 FROM reales r WHERE r.tipo = f.tipo AND r.valor = f.valor)
+            )
+            INSERT INTO perfil_facetas (tipo, valor, total)
+            SELECT tipo, valor, total FROM reales
+            ON CONFLICT (tipo, valor) DO UPDATE SET total = EXCLUDED.total
+            WHERE perfil_facetas.total <> EXCLUDED.total
+            """, nativeQuery = true)
+    int recalcular();
+}
@@ -0,0 +1,287 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Lecturas de solo lectura que escriben cada fila de JDBC directamente en un JsonGenerator,
+ * sin crear la entidad Perfil ni el PerfilResponseDTO.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PerfilJsonRepository {
+
+    // Filas por ida y vuelta al recorrer todos los perfiles públicos (cursor del lado del servidor)
+    private static final int FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Escribe como arreglo JSON la misma página que PerfilRepository.findPublicosDespuesDe, con solo
+     * los campos indicados (en su orden). Únicamente se leen esas columnas, más la clave y la versión.
+     *
+     * @return usuarioId y versión de cada perfil escrito, en orden
+     */
+    public List<PerfilVersion> escribirPublicos(String despuesDe, int limite, String paisResidencia,
+                                                String organizacion, List<CampoPerfil> campos,
+                                                JsonGenerator generador) throws IOException {
+        Proyeccion proyeccion = Proyeccion.de(campos);
+        // Los filtros ausentes no se incluyen en la consulta para que el plan use el índice parcial
+        StringBuilder sql = new StringBuilder("SELECT ").append(proyeccion.columnas())
+                .append(" FROM perfiles WHERE informacion_contacto_publica = true AND usuario_id > ?");
+        List<Object> parametros = new ArrayList<>(4);
+        parametros.add(despuesDe);
+        if (paisResidencia != null) {
+            sql.append(" AND pais_residencia = ?");
+            parametros.add(paisResidencia);
+        }
+        if (organizacion != null) {
+            sql.append(" AND organizacion = ?");
+            parametros.add(organizacion);
+        }
+        sql.append(" ORDER BY usuario_id LIMIT ?");
+        parametros.add(limite);
+
+        List<PerfilVersion> versiones = new ArrayList<>(limite);
+        generador.writeStartArray();
+        consultar(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString());
+            for (int i = 0; i < parametros.size(); i++) {
+                ps.setObject(i + 1, parametros.get(i));
+            }
+            return ps;
+        }, rs -> {
+            proyeccion.escribirFila(rs, generador);
+            versiones.add(proyeccion.version(rs));
+        });
+        generador.writeEndArray();
+        return versiones;
+    }
+
+    /**
+     * Búsqueda de texto completo sobre apodo, organización y biografía de los perfiles públicos, ordenada
+     * por relevancia (ts_rank) y paginada por cursor. La columna generada {@code busqueda} y su índice GIN
+     * parcial (migración V1) evitan recorrer la tabla: solo se puntúan las filas que coinciden.
+     *
+     * @param texto  consulta en sintaxis de buscador web (websearch_to_tsquery): palabras, "frases", -exclusión
+     * @param cursor último resultado de la página anterior, o null para la primera página
+     * @return posición de cada perfil escrito, en orden
+     */
+    public List<CursorBusqueda> buscarPublicos(String texto, CursorBusqueda cursor, int limite,
+                                               List<CampoPerfil> campos, JsonGenerator generador) throws IOException {
+        Proyeccion proyeccion = Proyeccion.de(campos);
+        int indiceRango = proyeccion.cantidadColumnas() + 1;
+        StringBuilder sql = new StringBuilder("SELECT * FROM (SELECT ").append(proyeccion.columnas())
+                .append(", ts_rank(busqueda, consulta) AS rango")
+                .append(" FROM perfiles, websearch_to_tsquery('spanish', ?) AS consulta")
+                .append(" WHERE informacion_contacto_publica = true AND busqueda @@ consulta) AS resultados");
+        if (cursor != null) {
+            sql.append(" WHERE rango < ? OR (rango = ? AND usuario_id > ?)");
+        }
+        sql.append(" ORDER BY rango DESC, usuario_id LIMIT ?");
+
+        List<CursorBusqueda> posiciones = new ArrayList<>(limite);
+        generador.writeStartArray();
+        consultar(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql.toString());
+            int i = 1;
+            ps.setString(i++, texto);
+            if (cursor != null) {
+                ps.setFloat(i++, cursor.rango());
+                ps.setFloat(i++, cursor.rango());
+                ps.setString(i++, cursor.usuarioId());
+            }
+            ps.setInt(i, limite);
+            return ps;
+        }, rs -> {
+            proyeccion.escribirFila(rs, generador);
+            posiciones.add(new CursorBusqueda(rs.getFloat(indiceRango), rs.getString(proyeccion.indiceUsuarioId())));
+        });
+        generador.writeEndArray();
+        return posiciones;
+    }
+
+    /**
+     * Escribe todos los perfiles públicos, un objeto JSON por línea (NDJSON). Requiere una transacción
+     * abierta para que el driver de PostgreSQL use un cursor y traiga las filas por bloques.
+     *
+     * @return número de perfiles escritos
+     */
+    public long escribirTodosPublicos(List<CampoPerfil> campos, JsonGenerator generador) throws IOException {
+        Proyeccion proyeccion = Proyeccion.de(campos);
+        String sql = "SELECT " + proyeccion.columnas()
+                + " FROM perfiles WHERE informacion_contacto_publica = true ORDER BY usuario_id";
+        // El salto de línea separa los objetos; sin esto Jackson antepone un espacio a cada uno
+        generador.setRootValueSeparator(null);
+        long[] total = {0};
+        consultar(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(FETCH_SIZE);
+            return ps;
+        }, rs -> {
+            proyeccion.escribirFila(rs, generador);
+            generador.writeRaw('\n');
+            total[0]++;
+        });
+        return total[0];
+    }
+
+    /**
+     * Escribe el perfil con solo los campos indicados.
+     *
+     * @return versión del perfil, o vacío si no existe (en ese caso no se escribe nada)
+     */
+    public Optional<PerfilVersion> escribirPerfil(String usuarioId, List<CampoPerfil> campos,
+                                                  JsonGenerator generador) throws IOException {
+        Proyeccion proyeccion = Proyeccion.de(campos);
+        String sql = "SELECT " + proyeccion.columnas() + " FROM perfiles WHERE usuario_id = ?";
+        List<PerfilVersion> versiones = new ArrayList<>(1);
+        consultar(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setString(1, usuarioId);
+            return ps;
+        }, rs -> {
+            proyeccion.escribirFila(rs, generador);
+            versiones.add(proyeccion.version(rs));
+        });
+        return versiones.stream().findFirst();
+    }
+
+    /**
+     * Escribe como arreglo JSON un elemento por id pedido, en el mismo orden y con la forma de
+     * PerfilConsultaItemDTO ({@code usuarioId}, {@code encontrado}, {@code perfil}).
+     */
+    public void escribirPorIds(List<String> usuarioIds, List<CampoPerfil> campos,
+                               JsonGenerator generador) throws IOException {
+        Proyeccion proyeccion = Proyeccion.de(campos);
+        String sql = "SELECT " + proyeccion.columnas() + " FROM perfiles WHERE usuario_id = ANY(?)";
+        // Las filas llegan en cualquier orden: cada perfil se guarda como tokens hasta escribir la respuesta
+        Map<String, TokenBuffer> perfiles = new HashMap<>();
+        consultar(connection -> {
+            PreparedStatement ps = connection.prepareStatement(sql);
+            ps.setArray(1, connection.createArrayOf("varchar", new LinkedHashSet<>(usuarioIds).toArray(String[]::new)));
+            return ps;
+        }, rs -> {
+            TokenBuffer perfil = new TokenBuffer(generador.getCodec(), false);
+            proyeccion.escribirFila(rs, perfil);
+            perfiles.put(rs.getString(proyeccion.indiceUsuarioId()), perfil);
+        });
+
+        generador.writeStartArray();
+        for (String usuarioId : usuarioIds) {
+            TokenBuffer perfil = perfiles.get(usuarioId);
+            generador.writeStartObject();
+            generador.writeStringField("usuarioId", usuarioId);
+            generador.writeBooleanField("encontrado", perfil != null);
+            generador.writeFieldName("perfil");
+            if (perfil == null) {
+                generador.writeNull();
+            } else {
+                perfil.serialize(generador);
+            }
+            generador.writeEndObject();
+        }
+        generador.writeEndArray();
+    }
+
+    private void consultar(PreparedStatementCreator sentencia, FilaJson fila)
+            throws IOException {
+        try {
+            jdbcTemplate.query(sentencia, (RowCallbackHandler) rs -> {
+                try {
+                    fila.procesar(rs);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Columnas a leer: los campos a escribir, seguidos de usuario_id, created_at, updated_at y version si no están
+     * entre ellos (se necesitan para la versión de cada perfil aunque no formen parte del JSON).
+     */
+    private record Proyeccion(List<CampoPerfil> campos, List<CampoPerfil> leidos, String columnas,
+                              int indiceUsuarioId, int indiceCreatedAt, int indiceUpdatedAt, int indiceVersion) {
+
+        static Proyeccion de(List<CampoPerfil> campos) {
+            List<CampoPerfil> leidos = new ArrayList<>(campos);
+            for (CampoPerfil campo : List.of(CampoPerfil.USUARIO_ID, CampoPerfil.CREATED_AT, CampoPerfil.UPDATED_AT,
+                    CampoPerfil.VERSION)) {
+                if (!leidos.contains(campo)) {
+                    leidos.add(campo);
+                }
+            }
+            return new Proyeccion(campos, leidos, CampoPerfil.columnas(leidos),
+                    leidos.indexOf(CampoPerfil.USUARIO_ID) + 1, leidos.indexOf(CampoPerfil.CREATED_AT) + 1,
+                    leidos.indexOf(CampoPerfil.UPDATED_AT) + 1, leidos.indexOf(CampoPerfil.VERSION) + 1);
+        }
+
+        PerfilVersion version(ResultSet rs) throws SQLException {
+            return new Version(rs.getString(indiceUsuarioId), rs.getObject(indiceCreatedAt, LocalDateTime.class),
+                    rs.getObject(indiceUpdatedAt, LocalDateTime.class), rs.getLong(indiceVersion));
+        }
+
+        int cantidadColumnas() {
+            return leidos.size();
+        }
+
+        void escribirFila(ResultSet rs, JsonGenerator generador) throws SQLException, IOException {
+            generador.writeStartObject();
+            for (int i = 0; i < campos.size(); i++) {
+                campos.get(i).escribir(rs, i + 1, generador);
+            }
+            generador.writeEndObject();
+        }
+    }
+
+    @FunctionalInterface
+    private interface FilaJson {
+        void procesar(ResultSet rs) throws SQLException, IOException;
+    }
+
+    private record Version(String usuarioId, LocalDateTime createdAt, LocalDateTime updatedAt, Long version)
+            implements PerfilVersion {
+
+        @Override
+        public String getUsuarioId() {
+            return usuarioId;
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        @Override
+        public Long getVersion() {
+            return version;
+        }
+    }
+}
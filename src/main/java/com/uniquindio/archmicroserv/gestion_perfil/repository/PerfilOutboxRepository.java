@@ -0,0 +1,45 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilOutbox;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PerfilOutboxRepository extends JpaRepository<PerfilOutbox, Long> {
+
+    // Serializa los reclamos de todas las réplicas hasta el commit: el reclamo siguiente empieza con una
+    // instantánea que ya ve los anteriores (READ COMMITTED). Solo dura lo que tarda el UPDATE de reclamarPendientes
+    @Query(value = "SELECT true FROM pg_advisory_xact_lock(hashtext('perfil_outbox'))", nativeQuery = true)
+    boolean bloquearReclamos();
+
+    /**
+     * Marca como reclamados hasta ahora + plazoMs los primeros eventos pendientes por id. Se omiten los eventos
+     * con un reclamo vigente y todos los de sus usuarios, así otra réplica no publica el evento siguiente de un
+     * usuario antes que el anterior. Debe ejecutarse después de bloquearReclamos, en la misma transacción.
+     */
+    @Query(value = """
+            UPDATE perfil_outbox SET reclamado_hasta = clock_timestamp() + :plazoMs * interval '1 millisecond'
+            WHERE id IN (
+                SELECT o.id FROM perfil_outbox o
+                WHERE (o.reclamado_hasta IS NULL OR o.reclamado_hasta < clock_timestamp())
+                    AND NOT EXISTS (
+                        SELECT 1 FROM perfil_outbox r
+                        WHERE r.usuario_id = o.usuario_id AND r.reclamado_hasta >= clock_timestamp())
+                ORDER BY o.id
+                LIMIT :limite
+            )
+            RETURNING *
+            """, nativeQuery = true)
+    List<PerfilOutbox> reclamarPendientes(@Param("limite") int limite, @Param("plazoMs") long plazoMs);
+
+    // Devuelve los eventos no publicados a pendientes sin esperar a que venza el reclamo
+    @Modifying
+    @Query(value = "UPDATE perfil_outbox SET reclamado_hasta = NULL WHERE id IN (:ids)", nativeQuery = true)
+    int liberar(@Param("ids") Collection<Long> ids);
+}
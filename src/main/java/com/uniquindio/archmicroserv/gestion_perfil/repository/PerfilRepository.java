@@ -1,14 +1,62 @@
 package com.uniquindio.archmicroserv.gestion_perfil.repository;
 
 import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface PerfilRepository extends JpaRepository<Perfil, String> {
+public interface PerfilRepository extends JpaRepository<Perfil, String>, PerfilRepositoryCustom {
     Optional<Perfil> findByUsuarioId(String usuarioId);
     boolean existsByUsuarioId(String usuarioId);
-}
 
+    // Paginación por cursor (keyset) sobre usuario_id; usa el índice parcial idx_perfiles_publicos
+    @Query("""
+            SELECT p FROM Perfil p
+            WHERE p.informacionContactoPublica = true
+              AND p.usuarioId > :despuesDe
+              AND (:paisResidencia IS NULL OR p.paisResidencia = :paisResidencia)
+              AND (:organizacion IS NULL OR p.organizacion = :organizacion)
+            ORDER BY p.usuarioId
+            """)
+    List<Perfil> findPublicosDespuesDe(@Param("despuesDe") String despuesDe,
+                                       @Param("paisResidencia") String paisResidencia,
+                                       @Param("organizacion") String organizacion,
+                                       Pageable pageable);
+
+    @Query("""
+            SELECT new com.uniquindio.archmicroserv.gestion_perfil.repository.FacetasPerfil(
+                p.informacionContactoPublica, p.paisResidencia, p.organizacion)
+            FROM Perfil p WHERE p.usuarioId = :usuarioId
+            """)
+    Optional<FacetasPerfil> findFacetasByUsuarioId(@Param("usuarioId") String usuarioId);
+
+    @Query("""
+            SELECT p.usuarioId AS usuarioId, p.createdAt AS createdAt, p.updatedAt AS updatedAt,
+                p.version AS version
+            FROM Perfil p
+            WHERE p.usuarioId = :usuarioId
+            """)
+    Optional<PerfilVersion> findVersionByUsuarioId(@Param("usuarioId") String usuarioId);
+
+    // Misma página que findPublicosDespuesDe, pero solo con la clave y la versión de cada perfil
+    @Query("""
+            SELECT p.usuarioId AS usuarioId, p.createdAt AS createdAt, p.updatedAt AS updatedAt,
+                p.version AS version
+            FROM Perfil p
+            WHERE p.informacionContactoPublica = true
+              AND p.usuarioId > :despuesDe
+              AND (:paisResidencia IS NULL OR p.paisResidencia = :paisResidencia)
+              AND (:organizacion IS NULL OR p.organizacion = :organizacion)
+            ORDER BY p.usuarioId
+            """)
+    List<PerfilVersion> findVersionesPublicasDespuesDe(@Param("despuesDe") String despuesDe,
+                                                       @Param("paisResidencia") String paisResidencia,
+                                                       @Param("organizacion") String organizacion,
+                                                       Pageable pageable);
+}
@@ -0,0 +1,42 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface PerfilRepositoryCustom {
+
+    /**
+     * Inserta un perfil por defecto (privado y vacío) para cada usuario que aún no tenga perfil.
+     * Los existentes no se modifican, por lo que repetir la llamada con los mismos ids no tiene efecto.
+     *
+     * @return los perfiles creados (sin los que ya existían)
+     */
+    List<Perfil> insertarPerfilesPorDefecto(Collection<String> usuarioIds);
+
+    /**
+     * Crea el perfil o actualiza solo los campos no nulos de la petición en una única sentencia.
+     * updated_at y version solo cambian si algún campo cambia de valor. Devuelve también las facetas previas
+     * de la fila para actualizar los conteos de forma incremental.
+     */
+    PerfilUpsert upsertPerfil(String usuarioId, PerfilRequestDTO cambios);
+
+    /**
+     * Aplica los mismos cambios que upsertPerfil, pero solo a un perfil existente cuya versión y created_at
+     * coincidan con alguna de {@code versiones} (cualquiera si es null). version aumenta solo si algún campo
+     * cambia de valor.
+     *
+     * @return la fila actualizada, o vacío si el perfil no existe o su versión es otra
+     */
+    Optional<PerfilUpsert> actualizarPerfilSiVersion(String usuarioId, PerfilRequestDTO cambios,
+                                                     Collection<VersionEsperada> versiones);
+
+    /**
+     * Perfiles completos (incluida la biografía, que la entidad carga de forma diferida) en una sola
+     * consulta. Las instancias no quedan asociadas al contexto de persistencia: solo para lectura.
+     */
+    List<Perfil> buscarCompletos(Collection<String> usuarioIds);
+}
@@ -0,0 +1,288 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Array;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class PerfilRepositoryCustomImpl implements PerfilRepositoryCustom {
+
+    // Ids por sentencia: cada bloque viaja como un único parámetro de tipo arreglo
+    static final int TAMANO_BLOQUE = 1000;
+
+    // Solo devuelve las filas insertadas: las que ya existían no pasan por RETURNING
+    private static final String INSERTAR_POR_DEFECTO = """
+            INSERT INTO perfiles (usuario_id, informacion_contacto_publica, created_at, updated_at)
+            SELECT u.usuario_id, false, ?, ?
+            FROM unnest(?::varchar[]) AS u(usuario_id)
+            ON CONFLICT (usuario_id) DO NOTHING
+            RETURNING
+            """ + CampoPerfil.columnas(List.of(CampoPerfil.values()));
+
+    // Columnas de texto de PerfilRequestDTO; un valor nulo significa "no modificar"
+    private static final List<Columna> COLUMNAS_TEXTO = List.of(
+            new Columna("url_pagina_personal", PerfilRequestDTO::getUrlPaginaPersonal),
+            new Columna("apodo", PerfilRequestDTO::getApodo),
+            new Columna("direccion_correspondencia", PerfilRequestDTO::getDireccionCorrespondencia),
+            new Columna("biografia", PerfilRequestDTO::getBiografia),
+            new Columna("organizacion", PerfilRequestDTO::getOrganizacion),
+            new Columna("pais_residencia", PerfilRequestDTO::getPaisResidencia),
+            new Columna("link_facebook", PerfilRequestDTO::getLinkFacebook),
+            new Columna("link_twitter", PerfilRequestDTO::getLinkTwitter),
+            new Columna("link_linkedin", PerfilRequestDTO::getLinkLinkedIn),
+            new Columna("link_instagram", PerfilRequestDTO::getLinkInstagram),
+            new Columna("link_github", PerfilRequestDTO::getLinkGithub),
+            new Columna("link_otra_red", PerfilRequestDTO::getLinkOtraRed));
+
+    // Fila previa bloqueada durante la sentencia, para devolver sus facetas (visibilidad, país y organización)
+    private static final String ANTERIOR = "anterior AS (\n"
+            + "    SELECT informacion_contacto_publica, pais_residencia, organizacion FROM perfiles\n"
+            + "    WHERE usuario_id = ? FOR UPDATE\n"
+            + ")";
+
+    private static final String RETORNO_ANTERIOR = "    (SELECT informacion_contacto_publica FROM anterior) AS anterior_publica,\n"
+            + "    (SELECT pais_residencia FROM anterior) AS anterior_pais_residencia,\n"
+            + "    (SELECT organizacion FROM anterior) AS anterior_organizacion";
+
+    private static final String UPSERT = construirUpsert();
+
+    private static final String ACTUALIZAR_SI_VERSION = construirActualizacionCondicional();
+
+    private static final String BUSCAR_COMPLETOS = "SELECT " + CampoPerfil.columnas(List.of(CampoPerfil.values()))
+            + " FROM perfiles WHERE usuario_id = ANY(?)";
+
+    // Público para que los benchmarks comparen la lectura con entidad contra PerfilJsonRepository
+    public static final RowMapper<Perfil> PERFIL_ROW_MAPPER = (rs, fila) -> Perfil.builder()
+            .usuarioId(rs.getString("usuario_id"))
+            .urlPaginaPersonal(rs.getString("url_pagina_personal"))
+            .apodo(rs.getString("apodo"))
+            .informacionContactoPublica(rs.getBoolean("informacion_contacto_publica"))
+            .direccionCorrespondencia(rs.getString("direccion_correspondencia"))
+            .biografia(rs.getString("biografia"))
+            .organizacion(rs.getString("organizacion"))
+            .paisResidencia(rs.getString("pais_residencia"))
+            .linkFacebook(rs.getString("link_facebook"))
+            .linkTwitter(rs.getString("link_twitter"))
+            .linkLinkedIn(rs.getString("link_linkedin"))
+            .linkInstagram(rs.getString("link_instagram"))
+            .linkGithub(rs.getString("link_github"))
+            .linkOtraRed(rs.getString("link_otra_red"))
+            .createdAt(rs.getObject("created_at", LocalDateTime.class))
+            .updatedAt(rs.getObject("updated_at", LocalDateTime.class))
+            .version(rs.getLong("version"))
+            .nuevo(false)
+            .build();
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<Perfil> insertarPerfilesPorDefecto(Collection<String> usuarioIds) {
+        List<String> ids = new ArrayList<>(usuarioIds);
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        List<Perfil> creados = new ArrayList<>();
+        for (int desde = 0; desde < ids.size(); desde += TAMANO_BLOQUE) {
+            String[] bloque = ids.subList(desde, Math.min(desde + TAMANO_BLOQUE, ids.size())).toArray(String[]::new);
+            creados.addAll(jdbcTemplate.query(connection -> {
+                PreparedStatement ps = connection.prepareStatement(INSERTAR_POR_DEFECTO);
+                Array arreglo = connection.createArrayOf("varchar", bloque);
+                ps.setTimestamp(1, ahora);
+                ps.setTimestamp(2, ahora);
+                ps.setArray(3, arreglo);
+                return ps;
+            }, PERFIL_ROW_MAPPER));
+        }
+        return creados;
+    }
+
+    @Override
+    public PerfilUpsert upsertPerfil(String usuarioId, PerfilRequestDTO cambios) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        Boolean publica = cambios.getInformacionContactoPublica();
+
+        // Sin fila devuelta la CTE no vio la fila que otra transacción insertó a la vez y el UPDATE se omitió:
+        // la sentencia se repite con una instantánea nueva, que sí la ve y la bloquea (READ COMMITTED)
+        List<PerfilUpsert> filas;
+        do {
+            filas = ejecutarUpsert(usuarioId, cambios, ahora, publica);
+        } while (filas.isEmpty());
+        return filas.get(0);
+    }
+
+    private List<PerfilUpsert> ejecutarUpsert(String usuarioId, PerfilRequestDTO cambios, Timestamp ahora,
+                                              Boolean publica) {
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(UPSERT);
+            int i = 1;
+            ps.setString(i++, usuarioId);
+            ps.setString(i++, usuarioId);
+            for (Columna columna : COLUMNAS_TEXTO) {
+                ps.setString(i++, columna.valor().apply(cambios));
+            }
+            ps.setObject(i++, publica, Types.BOOLEAN);
+            ps.setTimestamp(i++, ahora);
+            ps.setTimestamp(i++, ahora);
+            // informacion_contacto_publica se enlaza sin el valor por defecto del INSERT para el SET y los CASE
+            ps.setObject(i++, publica, Types.BOOLEAN);
+            ps.setObject(i++, publica, Types.BOOLEAN);
+            ps.setObject(i, publica, Types.BOOLEAN);
+            return ps;
+        }, PerfilRepositoryCustomImpl::mapearUpsert);
+    }
+
+    @Override
+    public Optional<PerfilUpsert> actualizarPerfilSiVersion(String usuarioId, PerfilRequestDTO cambios,
+                                                           Collection<VersionEsperada> versiones) {
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+
+        List<PerfilUpsert> filas = jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(ACTUALIZAR_SI_VERSION);
+            int i = 1;
+            ps.setString(i++, usuarioId);
+            for (Columna columna : COLUMNAS_TEXTO) {
+                ps.setString(i++, columna.valor().apply(cambios));
+            }
+            ps.setObject(i++, cambios.getInformacionContactoPublica(), Types.BOOLEAN);
+            ps.setTimestamp(i++, ahora);
+            ps.setString(i++, usuarioId);
+            // Dos arreglos paralelos: version y created_at de cada ETag aceptado
+            Array numeros = null;
+            Array creados = null;
+            if (versiones != null) {
+                numeros = connection.createArrayOf("bigint",
+                        versiones.stream().map(VersionEsperada::version).toArray(Long[]::new));
+                creados = connection.createArrayOf("timestamp",
+                        versiones.stream().map(v -> Timestamp.valueOf(v.createdAt())).toArray(Timestamp[]::new));
+            }
+            ps.setArray(i++, numeros);
+            ps.setArray(i++, numeros);
+            ps.setArray(i, creados);
+            return ps;
+        }, PerfilRepositoryCustomImpl::mapearUpsert);
+
+        return filas.stream().findFirst();
+    }
+
+    @Override
+    public List<Perfil> buscarCompletos(Collection<String> usuarioIds) {
+        if (usuarioIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(BUSCAR_COMPLETOS);
+            ps.setArray(1, connection.createArrayOf("varchar", usuarioIds.toArray(String[]::new)));
+            return ps;
+        }, PERFIL_ROW_MAPPER);
+    }
+
+    private static PerfilUpsert mapearUpsert(ResultSet rs, int fila) throws SQLException {
+        return new PerfilUpsert(PERFIL_ROW_MAPPER.mapRow(rs, fila), rs.getBoolean("creado"),
+                rs.getObject("anterior_publica") != null
+                        ? new FacetasPerfil(rs.getBoolean("anterior_publica"),
+                                rs.getString("anterior_pais_residencia"), rs.getString("anterior_organizacion"))
+                        : null);
+    }
+
+    /**
+     * INSERT ... ON CONFLICT DO UPDATE que combina con COALESCE los valores nuevos con los existentes
+     * y devuelve la fila resultante. (xmax = 0) solo es cierto para filas recién insertadas.
+     * La CTE bloquea y lee la fila previa para devolver también sus facetas (visibilidad, país y organización).
+     * Si dos primeras escrituras compiten, la CTE de la perdedora no ve la fila de la ganadora (aún sin confirmar
+     * al empezar la sentencia) pero el INSERT choca con ella tras esperar su commit; el WHERE EXISTS omite entonces
+     * el UPDATE, que no devuelve fila, en lugar de actualizar con facetas previas vacías y creado = false.
+     */
+    private static String construirUpsert() {
+        String nombres = COLUMNAS_TEXTO.stream().map(Columna::nombre).collect(Collectors.joining(", "));
+        String parametros = COLUMNAS_TEXTO.stream().map(c -> "?").collect(Collectors.joining(", "));
+        String publica = "COALESCE(?::boolean, perfiles.informacion_contacto_publica)";
+        String hayCambios = hayCambios("EXCLUDED", publica);
+
+        return "WITH " + ANTERIOR + "\n"
+                + "INSERT INTO perfiles (usuario_id, " + nombres + ", informacion_contacto_publica, created_at, updated_at)\n"
+                + "VALUES (?, " + parametros + ", COALESCE(?::boolean, false), ?, ?)\n"
+                + "ON CONFLICT (usuario_id) DO UPDATE SET\n    "
+                + asignaciones("EXCLUDED") + ",\n"
+                + "    informacion_contacto_publica = " + publica + ",\n"
+                + "    updated_at = CASE WHEN " + hayCambios + "\n"
+                + "        THEN EXCLUDED.updated_at ELSE perfiles.updated_at END,\n"
+                + "    version = CASE WHEN " + hayCambios + "\n"
+                + "        THEN perfiles.version + 1 ELSE perfiles.version END\n"
+                + "WHERE EXISTS (SELECT 1 FROM anterior)\n"
+                + "RETURNING " + retorno(nombres) + ", (xmax = 0) AS creado,\n"
+                + RETORNO_ANTERIOR;
+    }
+
+    /**
+     * UPDATE con los mismos cambios que el upsert, solo si la fila existe y su versión es una de las esperadas
+     * (cualquiera si el arreglo es nulo). La comparación y la escritura son una única sentencia: no hay bloqueo
+     * entre la lectura del cliente y su escritura, y si otra escritura ganó no se devuelve ninguna fila.
+     * created_at se compara junto con version: un perfil borrado y vuelto a crear repite los números de versión.
+     */
+    private static String construirActualizacionCondicional() {
+        String nombres = COLUMNAS_TEXTO.stream().map(Columna::nombre).collect(Collectors.joining(", "));
+        String parametros = COLUMNAS_TEXTO.stream().map(c -> "?").collect(Collectors.joining(", "));
+        String publica = "COALESCE(nuevo.informacion_contacto_publica, perfiles.informacion_contacto_publica)";
+        String hayCambios = hayCambios("nuevo", publica);
+
+        return "WITH " + ANTERIOR + "\n"
+                + "UPDATE perfiles SET\n    "
+                + asignaciones("nuevo") + ",\n"
+                + "    informacion_contacto_publica = " + publica + ",\n"
+                + "    updated_at = CASE WHEN " + hayCambios + "\n"
+                + "        THEN nuevo.updated_at ELSE perfiles.updated_at END,\n"
+                + "    version = CASE WHEN " + hayCambios + "\n"
+                + "        THEN perfiles.version + 1 ELSE perfiles.version END\n"
+                + "FROM (VALUES (" + parametros + ", ?::boolean, ?::timestamp))\n"
+                + "    AS nuevo (" + nombres + ", informacion_contacto_publica, updated_at)\n"
+                + "WHERE perfiles.usuario_id = ?\n"
+                + "    AND (?::bigint[] IS NULL OR EXISTS (\n"
+                + "        SELECT 1 FROM unnest(?::bigint[], ?::timestamp[]) AS esperada (version, created_at)\n"
+                + "        WHERE esperada.version = perfiles.version AND esperada.created_at = perfiles.created_at))\n"
+                + "RETURNING " + retorno(nombres) + ", false AS creado,\n"
+                + RETORNO_ANTERIOR;
+    }
+
+    private static String asignaciones(String origen) {
+        return COLUMNAS_TEXTO.stream()
+                .map(c -> c.nombre() + " = " + combinado(origen, c.nombre()))
+                .collect(Collectors.joining(",\n    "));
+    }
+
+    private static String hayCambios(String origen, String publica) {
+        return COLUMNAS_TEXTO.stream()
+                .map(c -> combinado(origen, c.nombre()) + " IS DISTINCT FROM perfiles." + c.nombre())
+                .collect(Collectors.joining("\n        OR "))
+                + "\n        OR " + publica + " IS DISTINCT FROM perfiles.informacion_contacto_publica";
+    }
+
+    // Columnas de la tabla calificadas: en el UPDATE los valores nuevos tienen los mismos nombres
+    private static String retorno(String nombres) {
+        return Arrays.stream(("usuario_id, " + nombres + ", informacion_contacto_publica, created_at, updated_at, version")
+                        .split(", "))
+                .map(columna -> "perfiles." + columna)
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String combinado(String origen, String columna) {
+        return "COALESCE(" + origen + "." + columna + ", perfiles." + columna + ")";
+    }
+
+    private record Columna(String nombre, Function<PerfilRequestDTO, String> valor) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+
+/**
+ * Fila resultante de un upsert y si la sentencia la insertó (true) o actualizó (false).
+ * anterior son las facetas de la fila antes de la sentencia (null si no existía).
+ */
+public record PerfilUpsert(Perfil perfil, boolean creado, FacetasPerfil anterior) {
+}
@@ -0,0 +1,13 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección mínima de un perfil para validar peticiones condicionales sin cargar la fila completa.
+ */
+public interface PerfilVersion {
+    String getUsuarioId();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+    Long getVersion();
+}
@@ -0,0 +1,10 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Versión de un perfil aceptada por una actualización condicional. createdAt identifica la encarnación: al borrar
+ * y volver a crear el perfil version empieza otra vez en 0, así que el número solo no distingue ambas filas.
+ */
+public record VersionEsperada(long version, LocalDateTime createdAt) {
+}
@@ -0,0 +1,57 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.uniquindio.archmicroserv.gestion_perfil.exceptions.ParametroInvalidoException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Representaciones predefinidas de un perfil ({@code ?view=}). El resumen es lo que muestran las tarjetas
+ * y listas: no incluye la biografía ni los enlaces, así que esas columnas no se leen.
+ */
+public enum VistaPerfil {
+
+    FULL("full", List.of(CampoPerfil.values())),
+    SUMMARY("summary", List.of(
+            CampoPerfil.USUARIO_ID,
+            CampoPerfil.APODO,
+            CampoPerfil.ORGANIZACION,
+            CampoPerfil.PAIS_RESIDENCIA,
+            CampoPerfil.UPDATED_AT));
+
+    private final String nombre;
+    private final List<CampoPerfil> campos;
+
+    VistaPerfil(String nombre, List<CampoPerfil> campos) {
+        this.nombre = nombre;
+        this.campos = campos;
+    }
+
+    public List<CampoPerfil> getCampos() {
+        return campos;
+    }
+
+    /**
+     * Campos a escribir según {@code view} o {@code fields}; no se pueden combinar. Sin ninguno, todos.
+     */
+    public static List<CampoPerfil> campos(String view, String fields) {
+        if (fields == null) {
+            return desde(view).getCampos();
+        }
+        if (view != null && !view.isBlank()) {
+            throw new ParametroInvalidoException("Los parámetros view y fields no se pueden combinar");
+        }
+        return CampoPerfil.desdePropiedades(fields);
+    }
+
+    public static VistaPerfil desde(String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            return FULL;
+        }
+        return Arrays.stream(values())
+                .filter(vista -> vista.nombre.equalsIgnoreCase(nombre))
+                .findFirst()
+                .orElseThrow(() -> new ParametroInvalidoException(
+                        "Vista no soportada: " + nombre + " (valores permitidos: full, summary)"));
+    }
+}
@@ -0,0 +1,54 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.uniquindio.archmicroserv.gestion_perfil.config.ReplicasDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Usuarios cuyo perfil cambió hace menos de gestorperfil.replicas.ventana-primario. Sus lecturas van al
+ * primario mientras las réplicas se ponen al día, así quien escribe ve su propio cambio y la caché de perfiles
+ * no se vuelve a llenar con la versión anterior. La ventana debe superar el retraso habitual de replicación.
+ */
+@Component
+public class EscriturasRecientes {
+
+    private static final int MAXIMO_USUARIOS = 100_000;
+
+    private final Cache<String, Boolean> usuarios;
+
+    public EscriturasRecientes(@Value("${gestorperfil.replicas.ventana-primario:5s}") Duration ventana) {
+        this.usuarios = Caffeine.newBuilder()
+                .expireAfterWrite(ventana)
+                .maximumSize(MAXIMO_USUARIOS)
+                .build();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPerfilModificado(PerfilModificadoEvent evento) {
+        registrar(evento.usuarioId());
+    }
+
+    // También para las escrituras de otras instancias (PerfilCacheBroadcaster)
+    public void registrar(String usuarioId) {
+        usuarios.put(usuarioId, Boolean.TRUE);
+    }
+
+    /**
+     * Fija la transacción de solo lectura actual al primario si alguno de los usuarios escribió dentro de la ventana.
+     */
+    public void leerDelPrimarioSiRecientes(Collection<String> usuarioIds) {
+        for (String usuarioId : usuarioIds) {
+            if (usuarios.getIfPresent(usuarioId) != null) {
+                ReplicasDataSource.leerDelPrimario();
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PerfilCacheInvalidator {
+
+    private final PerfilRespuestasCache respuestasCache;
+
+    // Se invalida después del commit: una lectura que empezó antes no guarda lo que leyó (PerfilRespuestasCache
+    // compara su marca con la de la invalidación), así que no vuelve a cachear el estado anterior
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPerfilModificado(PerfilModificadoEvent evento) {
+        invalidarLocal(evento.usuarioId());
+    }
+
+    public void invalidarLocal(String usuarioId) {
+        respuestasCache.invalidar(usuarioId);
+        log.debug("Perfil {} invalidado en la caché local", usuarioId);
+    }
+}
@@ -0,0 +1,117 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilFacetasDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilFaceta;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.FacetasPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilFacetaRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Conteos de perfiles públicos por país de residencia y por organización (tabla perfil_facetas).
+ * Las escrituras de perfiles suman la diferencia entre las facetas anteriores y las nuevas dentro de
+ * su propia transacción; la reconciliación periódica corrige cualquier desviación contra perfiles.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PerfilFacetasService {
+
+    private final PerfilFacetaRepository facetaRepository;
+
+    /**
+     * @param anterior facetas antes del cambio (null si el perfil no existía)
+     * @param nuevo    facetas después del cambio (null si el perfil se eliminó)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCambio(FacetasPerfil anterior, FacetasPerfil nuevo) {
+        Map<PerfilFaceta.Tipo, TreeMap<String, Long>> deltas = new EnumMap<>(PerfilFaceta.Tipo.class);
+        acumular(deltas, anterior, -1);
+        acumular(deltas, nuevo, 1);
+        aplicar(deltas);
+    }
+
+    /**
+     * Cambios de un lote: los deltas se agrupan por faceta y se aplican una vez cada uno.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarCambios(List<FacetasPerfil> anteriores, List<FacetasPerfil> nuevos) {
+        Map<PerfilFaceta.Tipo, TreeMap<String, Long>> deltas = new EnumMap<>(PerfilFaceta.Tipo.class);
+        for (int i = 0; i < nuevos.size(); i++) {
+            acumular(deltas, anteriores.get(i), -1);
+            acumular(deltas, nuevos.get(i), 1);
+        }
+        aplicar(deltas);
+    }
+
+    @Transactional(readOnly = true)
+    public PerfilFacetasDTO obtenerFacetas() {
+        Map<PerfilFaceta.Tipo, Map<String, Long>> conteos = new EnumMap<>(PerfilFaceta.Tipo.class);
+        for (PerfilFaceta.Tipo tipo : PerfilFaceta.Tipo.values()) {
+            conteos.put(tipo, new LinkedHashMap<>());
+        }
+        // findVigentes ya viene ordenado por total descendente dentro de cada tipo
+        for (PerfilFaceta faceta : facetaRepository.findVigentes()) {
+            conteos.get(faceta.getTipo()).put(faceta.getValor(), faceta.getTotal());
+        }
+        return PerfilFacetasDTO.builder()
+                .paisResidencia(conteos.get(PerfilFaceta.Tipo.PAIS_RESIDENCIA))
+                .organizacion(conteos.get(PerfilFaceta.Tipo.ORGANIZACION))
+                .build();
+    }
+
+    /**
+     * Recalcula los conteos desde perfiles y sobrescribe los que difieren. Corrige las desviaciones que
+     * dejan las carreras entre escrituras concurrentes del mismo perfil y los cambios hechos fuera de la
+     * aplicación.
+     */
+    @Scheduled(cron = "${gestorperfil.facetas.reconciliacion.cron:0 15 * * * *}")
+    @Transactional
+    public void reconciliar() {
+        if (!facetaRepository.bloquearReconciliacion()) {
+            log.debug("Reconciliación de facetas en curso en otra instancia");
+            return;
+        }
+        facetaRepository.bloquearEscrituras();
+        int corregidas = facetaRepository.recalcular();
+        if (corregidas > 0) {
+            log.warn("Reconciliación de facetas: {} conteos corregidos", corregidas);
+        }
+    }
+
+    private static void acumular(Map<PerfilFaceta.Tipo, TreeMap<String, Long>> deltas,
+                                 FacetasPerfil facetas, long signo) {
+        if (facetas == null || !facetas.publico()) {
+            return;
+        }
+        sumar(deltas, PerfilFaceta.Tipo.PAIS_RESIDENCIA, facetas.paisResidencia(), signo);
+        sumar(deltas, PerfilFaceta.Tipo.ORGANIZACION, facetas.organizacion(), signo);
+    }
+
+    private static void sumar(Map<PerfilFaceta.Tipo, TreeMap<String, Long>> deltas,
+                              PerfilFaceta.Tipo tipo, String valor, long delta) {
+        if (StringUtils.hasText(valor)) {
+            deltas.computeIfAbsent(tipo, t -> new TreeMap<>()).merge(valor, delta, Long::sum);
+        }
+    }
+
+    // Orden estable (tipo, valor): dos transacciones que tocan las mismas facetas no se bloquean mutuamente
+    private void aplicar(Map<PerfilFaceta.Tipo, TreeMap<String, Long>> deltas) {
+        deltas.forEach((tipo, porValor) -> porValor.forEach((valor, delta) -> {
+            if (delta != 0) {
+                facetaRepository.sumar(tipo.name(), valor, delta);
+            }
+        }));
+    }
+}
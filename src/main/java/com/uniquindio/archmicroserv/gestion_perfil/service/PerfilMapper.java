@@ -0,0 +1,79 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+
+/**
+ * Conversión entre la entidad Perfil y sus DTO: la respuesta completa y el merge parcial de una petición
+ * (solo los campos presentes). Visible en el paquete para PerfilService y los benchmarks JMH.
+ */
+final class PerfilMapper {
+
+    private PerfilMapper() {
+    }
+
+    static void aplicarCambios(Perfil perfil, PerfilRequestDTO requestDTO) {
+        if (requestDTO.getUrlPaginaPersonal() != null) {
+            perfil.setUrlPaginaPersonal(requestDTO.getUrlPaginaPersonal());
+        }
+        if (requestDTO.getApodo() != null) {
+            perfil.setApodo(requestDTO.getApodo());
+        }
+        if (requestDTO.getInformacionContactoPublica() != null) {
+            perfil.setInformacionContactoPublica(requestDTO.getInformacionContactoPublica());
+        }
+        if (requestDTO.getDireccionCorrespondencia() != null) {
+            perfil.setDireccionCorrespondencia(requestDTO.getDireccionCorrespondencia());
+        }
+        if (requestDTO.getBiografia() != null) {
+            perfil.setBiografia(requestDTO.getBiografia());
+        }
+        if (requestDTO.getOrganizacion() != null) {
+            perfil.setOrganizacion(requestDTO.getOrganizacion());
+        }
+        if (requestDTO.getPaisResidencia() != null) {
+            perfil.setPaisResidencia(requestDTO.getPaisResidencia());
+        }
+        if (requestDTO.getLinkFacebook() != null) {
+            perfil.setLinkFacebook(requestDTO.getLinkFacebook());
+        }
+        if (requestDTO.getLinkTwitter() != null) {
+            perfil.setLinkTwitter(requestDTO.getLinkTwitter());
+        }
+        if (requestDTO.getLinkLinkedIn() != null) {
+            perfil.setLinkLinkedIn(requestDTO.getLinkLinkedIn());
+        }
+        if (requestDTO.getLinkInstagram() != null) {
+            perfil.setLinkInstagram(requestDTO.getLinkInstagram());
+        }
+        if (requestDTO.getLinkGithub() != null) {
+            perfil.setLinkGithub(requestDTO.getLinkGithub());
+        }
+        if (requestDTO.getLinkOtraRed() != null) {
+            perfil.setLinkOtraRed(requestDTO.getLinkOtraRed());
+        }
+    }
+
+    static PerfilResponseDTO mapToResponseDTO(Perfil perfil) {
+        return PerfilResponseDTO.builder()
+                .usuarioId(perfil.getUsuarioId())
+                .urlPaginaPersonal(perfil.getUrlPaginaPersonal())
+                .apodo(perfil.getApodo())
+                .informacionContactoPublica(perfil.getInformacionContactoPublica())
+                .direccionCorrespondencia(perfil.getDireccionCorrespondencia())
+                .biografia(perfil.getBiografia())
+                .organizacion(perfil.getOrganizacion())
+                .paisResidencia(perfil.getPaisResidencia())
+                .linkFacebook(perfil.getLinkFacebook())
+                .linkTwitter(perfil.getLinkTwitter())
+                .linkLinkedIn(perfil.getLinkLinkedIn())
+                .linkInstagram(perfil.getLinkInstagram())
+                .linkGithub(perfil.getLinkGithub())
+                .linkOtraRed(perfil.getLinkOtraRed())
+                .createdAt(perfil.getCreatedAt())
+                .updatedAt(perfil.getUpdatedAt())
+                .version(perfil.getVersion())
+                .build();
+    }
+}
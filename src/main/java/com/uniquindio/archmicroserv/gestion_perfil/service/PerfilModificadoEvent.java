@@ -0,0 +1,7 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+/**
+ * Evento interno publicado cuando un perfil se crea, actualiza o elimina.
+ */
+public record PerfilModificadoEvent(String usuarioId) {
+}
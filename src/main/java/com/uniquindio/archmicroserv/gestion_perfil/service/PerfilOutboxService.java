@@ -0,0 +1,43 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilOutbox;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registra los eventos de cambio de perfil en el outbox. Debe llamarse dentro de la transacción
+ * que modifica el perfil: el evento existe si y solo si el cambio se confirma.
+ */
+@Service
+@RequiredArgsConstructor
+public class PerfilOutboxService {
+
+    private final PerfilOutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(String usuarioId, PerfilOutbox.TipoEvento tipoEvento, Object datos) {
+        Map<String, Object> evento = new LinkedHashMap<>();
+        evento.put("tipoAccion", tipoEvento.name());
+        evento.put("usuarioId", usuarioId);
+        evento.put("payload", datos);
+
+        try {
+            outboxRepository.save(PerfilOutbox.builder()
+                    .usuarioId(usuarioId)
+                    .tipoEvento(tipoEvento)
+                    .payload(objectMapper.writeValueAsString(evento))
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento de perfil: " + usuarioId, e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilVersion;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Respuestas ya codificadas de GET /api/v1/perfiles/{usuarioId}: los bytes de cada variante (formato, con o sin
+ * gzip) junto con la versión del perfil de la que salieron. Un acierto se escribe tal cual, sin cargar, mapear ni
+ * serializar el perfil. La memoria se acota por bytes (gestorperfil.cache.respuestas.max-bytes) y no por cantidad de
+ * perfiles, porque el tamaño de un perfil depende de su biografía y sus enlaces. Se invalida junto con la caché de
+ * perfiles (PerfilCacheInvalidator), también por escrituras de otras instancias.
+ */
+@Component
+public class PerfilRespuestasCache implements MeterBinder {
+
+    public static final String NOMBRE = "perfilesRespuestas";
+
+    // Aproximación de la clave, la entrada, el mapa de variantes y la cabecera de cada arreglo
+    private static final int SOBRECARGA_ENTRADA = 160;
+    private static final int SOBRECARGA_VARIANTE = 64;
+    private static final int MAXIMO_INVALIDACIONES = 100_000;
+    // Mayor que cualquier lectura: solo sirve para descartar las que empezaron antes de una invalidación
+    private static final Duration VIGENCIA_INVALIDACION = Duration.ofMinutes(1);
+
+    private final Cache<String, Entrada> respuestas;
+    // Momento (System.nanoTime) de la última invalidación de cada usuario
+    private final Cache<String, Long> invalidaciones;
+    private final long umbralGzip;
+
+    public PerfilRespuestasCache(@Value("${gestorperfil.cache.respuestas.max-bytes:64MB}") DataSize maximo,
+                                 @Value("${gestorperfil.cache.respuestas.expiracion:10m}") Duration expiracion,
+                                 @Value("${server.compression.min-response-size:2KB}") DataSize umbralGzip) {
+        this.respuestas = Caffeine.newBuilder()
+                .maximumWeight(maximo.toBytes())
+                .weigher((String usuarioId, Entrada entrada) -> entrada.peso(usuarioId))
+                .expireAfterWrite(expiracion)
+                .recordStats()
+                .build();
+        this.invalidaciones = Caffeine.newBuilder()
+                .expireAfterWrite(VIGENCIA_INVALIDACION)
+                .maximumSize(MAXIMO_INVALIDACIONES)
+                .build();
+        this.umbralGzip = umbralGzip.toBytes();
+    }
+
+    /**
+     * Cuerpo listo para enviar. Si {@code gzip} es verdadero ya está comprimido y se envía con Content-Encoding: gzip.
+     */
+    public record Respuesta(Long version, LocalDateTime createdAt, LocalDateTime updatedAt, byte[] cuerpo,
+                            boolean gzip) {
+    }
+
+    public Optional<Respuesta> obtener(String usuarioId, String variante) {
+        Entrada entrada = respuestas.getIfPresent(usuarioId);
+        return entrada == null ? Optional.empty() : Optional.ofNullable(entrada.variantes().get(variante));
+    }
+
+    // Para las peticiones condicionales: la versión en caché es la vigente mientras no se invalide
+    public Optional<PerfilVersion> version(String usuarioId) {
+        return Optional.ofNullable(respuestas.getIfPresent(usuarioId));
+    }
+
+    /**
+     * Se toma antes de leer el perfil y se pasa a {@link #guardar}.
+     */
+    public long marcaLectura() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Guarda una variante salvo que el perfil se haya invalidado después de {@code marcaLectura}: esa lectura pudo
+     * ver la versión anterior al commit. Una versión más nueva reemplaza todas las variantes de la anterior.
+     */
+    public void guardar(String usuarioId, String variante, Respuesta respuesta, long marcaLectura) {
+        if (respuesta.version() == null) {
+            return;
+        }
+        // La comprobación va dentro de compute: invalidar() registra la marca antes de eliminar la entrada
+        respuestas.asMap().compute(usuarioId, (id, actual) -> {
+            Long invalidado = invalidaciones.getIfPresent(id);
+            if (invalidado != null && invalidado - marcaLectura >= 0) {
+                return actual;
+            }
+            int orden = actual == null ? 1 : comparar(respuesta, actual);
+            if (orden > 0) {
+                return new Entrada(id, respuesta.version(), respuesta.createdAt(), respuesta.updatedAt(),
+                        Map.of(variante, respuesta));
+            }
+            if (orden < 0) {
+                return actual;
+            }
+            return actual.con(variante, respuesta);
+        });
+    }
+
+    // Un perfil borrado y vuelto a crear empieza otra vez en la versión 0: la encarnación más reciente es la vigente
+    private static int comparar(Respuesta respuesta, Entrada actual) {
+        int encarnacion = Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder())
+                .compare(respuesta.createdAt(), actual.createdAt());
+        return encarnacion != 0 ? encarnacion : Long.compare(respuesta.version(), actual.version());
+    }
+
+    public void invalidar(String usuarioId) {
+        invalidaciones.put(usuarioId, System.nanoTime());
+        respuestas.invalidate(usuarioId);
+    }
+
+    public void invalidarTodas() {
+        respuestas.invalidateAll();
+    }
+
+    // Por debajo del umbral de compresión del servidor gzip no compensa
+    public boolean comprimible(int bytes) {
+        return bytes >= umbralGzip;
+    }
+
+    public long bytes() {
+        return respuestas.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    // Aplica ya los desalojos pendientes (Caffeine los procesa de forma asíncrona)
+    void mantenimiento() {
+        respuestas.cleanUp();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, respuestas, NOMBRE);
+        Gauge.builder("perfil.respuestas.cache.bytes", this, PerfilRespuestasCache::bytes)
+                .description("Bytes de respuestas serializadas en la caché")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+    }
+
+    private record Entrada(String usuarioId, Long version, LocalDateTime createdAt, LocalDateTime updatedAt,
+                           Map<String, Respuesta> variantes) implements PerfilVersion {
+
+        @Override
+        public String getUsuarioId() {
+            return usuarioId;
+        }
+
+        @Override
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        @Override
+        public LocalDateTime getUpdatedAt() {
+            return updatedAt;
+        }
+
+        @Override
+        public Long getVersion() {
+            return version;
+        }
+
+        int peso(String usuarioId) {
+            int peso = SOBRECARGA_ENTRADA + 2 * usuarioId.length();
+            for (Respuesta respuesta : variantes.values()) {
+                peso += SOBRECARGA_VARIANTE + respuesta.cuerpo().length;
+            }
+            return peso;
+        }
+
+        Entrada con(String variante, Respuesta respuesta) {
+            Map<String, Respuesta> nuevas = new HashMap<>(variantes);
+            nuevas.put(variante, respuesta);
+            return new Entrada(usuarioId, version, createdAt, updatedAt, Map.copyOf(nuevas));
+        }
+    }
+}
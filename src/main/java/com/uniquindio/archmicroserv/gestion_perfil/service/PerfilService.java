@@ -1,145 +1,376 @@
 package com.uniquindio.archmicroserv.gestion_perfil.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilBatchItemDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilBatchResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilConsultaItemDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilFacetasDTO;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.exceptions.ParametroInvalidoException;
 import com.uniquindio.archmicroserv.gestion_perfil.exceptions.PerfilNotFoundException;
+import com.uniquindio.archmicroserv.gestion_perfil.exceptions.PerfilVersionMismatchException;
 import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilOutbox;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CampoPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CursorBusqueda;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.FacetasPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilJsonRepository;
 import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilRepository;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilUpsert;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilVersion;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.VersionEsperada;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "perfil.service", description = "Duración de los métodos de PerfilService", histogram = true)
 public class PerfilService {
 
+    public static final int LIMITE_MAXIMO_PAGINA = 200;
+    public static final int LONGITUD_MAXIMA_BUSQUEDA = 200;
+
     private final PerfilRepository perfilRepository;
+    private final PerfilJsonRepository perfilJsonRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PerfilOutboxService outboxService;
+    private final PerfilFacetasService facetasService;
+    private final EscriturasRecientes escriturasRecientes;
 
     @Transactional
     public PerfilResponseDTO crearOActualizarPerfil(String usuarioId, PerfilRequestDTO requestDTO) {
-        log.info("Creando o actualizando perfil para usuario: {}", usuarioId);
+        log.debug("Creando o actualizando perfil para usuario: {}", usuarioId);
         
-        Perfil perfil = perfilRepository.findByUsuarioId(usuarioId)
-                .orElse(Perfil.builder()
-                        .usuarioId(usuarioId)
-                        .informacionContactoPublica(false)
-                        .build());
+        // Un único INSERT ... ON CONFLICT DO UPDATE: sin lectura previa ni carrera entre dos primeras escrituras
+        PerfilUpsert resultado = perfilRepository.upsertPerfil(usuarioId, requestDTO);
+        return registrarEscritura(usuarioId, resultado);
+    }
 
-        // Actualizar campos
-        if (requestDTO.getUrlPaginaPersonal() != null) {
-            perfil.setUrlPaginaPersonal(requestDTO.getUrlPaginaPersonal());
-        }
-        if (requestDTO.getApodo() != null) {
-            perfil.setApodo(requestDTO.getApodo());
-        }
-        if (requestDTO.getInformacionContactoPublica() != null) {
-            perfil.setInformacionContactoPublica(requestDTO.getInformacionContactoPublica());
-        }
-        if (requestDTO.getDireccionCorrespondencia() != null) {
-            perfil.setDireccionCorrespondencia(requestDTO.getDireccionCorrespondencia());
-        }
-        if (requestDTO.getBiografia() != null) {
-            perfil.setBiografia(requestDTO.getBiografia());
-        }
-        if (requestDTO.getOrganizacion() != null) {
-            perfil.setOrganizacion(requestDTO.getOrganizacion());
-        }
-        if (requestDTO.getPaisResidencia() != null) {
-            perfil.setPaisResidencia(requestDTO.getPaisResidencia());
-        }
-        if (requestDTO.getLinkFacebook() != null) {
-            perfil.setLinkFacebook(requestDTO.getLinkFacebook());
-        }
-        if (requestDTO.getLinkTwitter() != null) {
-            perfil.setLinkTwitter(requestDTO.getLinkTwitter());
-        }
-        if (requestDTO.getLinkLinkedIn() != null) {
-            perfil.setLinkLinkedIn(requestDTO.getLinkLinkedIn());
+    /**
+     * Actualización condicional (If-Match): los cambios solo se aplican si el perfil existe y su versión es una de
+     * {@code versionesEsperadas} (cualquiera si es null), con la misma fecha de creación: un perfil borrado y vuelto
+     * a crear repite los números de versión. Dos clientes que editan a partir de la misma versión no se
+     * sobrescriben: el segundo recibe el error y debe volver a leer el perfil.
+     *
+     * @throws PerfilVersionMismatchException si el perfil no existe o su versión es otra
+     */
+    @Transactional
+    public PerfilResponseDTO actualizarPerfil(String usuarioId, PerfilRequestDTO requestDTO,
+                                              Collection<VersionEsperada> versionesEsperadas) {
+        log.debug("Actualizando perfil para usuario {} si su versión es {}", usuarioId, versionesEsperadas);
+        if (versionesEsperadas != null && versionesEsperadas.isEmpty()) {
+            throw new PerfilVersionMismatchException("If-Match no indica ninguna versión del perfil " + usuarioId);
         }
-        if (requestDTO.getLinkInstagram() != null) {
-            perfil.setLinkInstagram(requestDTO.getLinkInstagram());
+
+        PerfilUpsert resultado = perfilRepository.actualizarPerfilSiVersion(usuarioId, requestDTO, versionesEsperadas)
+                .orElseThrow(() -> new PerfilVersionMismatchException(
+                        "El perfil " + usuarioId + " no existe o cambió desde la versión indicada en If-Match"));
+        return registrarEscritura(usuarioId, resultado);
+    }
+
+    private PerfilResponseDTO registrarEscritura(String usuarioId, PerfilUpsert resultado) {
+        PerfilResponseDTO response = PerfilMapper.mapToResponseDTO(resultado.perfil());
+        facetasService.registrarCambio(resultado.anterior(), FacetasPerfil.de(resultado.perfil()));
+        outboxService.registrar(usuarioId,
+                resultado.creado() ? PerfilOutbox.TipoEvento.PERFIL_CREADO : PerfilOutbox.TipoEvento.PERFIL_ACTUALIZADO,
+                response);
+        eventPublisher.publishEvent(new PerfilModificadoEvent(usuarioId));
+        log.debug("Perfil guardado exitosamente para usuario: {}", usuarioId);
+
+        return response;
+    }
+
+    @Transactional
+    public PerfilBatchResponseDTO crearOActualizarPerfiles(Map<String, PerfilRequestDTO> solicitudes) {
+        log.debug("Creando o actualizando {} perfiles en lote", solicitudes.size());
+
+        // Una sola consulta para todos los perfiles existentes del lote
+        Set<String> ids = solicitudes.keySet().stream()
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toSet());
+        Map<String, Perfil> existentes = perfilRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Perfil::getUsuarioId, Function.identity()));
+
+        List<Perfil> perfiles = new ArrayList<>(solicitudes.size());
+        List<FacetasPerfil> facetasAnteriores = new ArrayList<>(solicitudes.size());
+        List<PerfilOutbox.TipoEvento> tiposEvento = new ArrayList<>(solicitudes.size());
+        List<PerfilBatchItemDTO> resultados = new ArrayList<>(solicitudes.size());
+        int creados = 0;
+        int actualizados = 0;
+        for (Map.Entry<String, PerfilRequestDTO> solicitud : solicitudes.entrySet()) {
+            String usuarioId = solicitud.getKey();
+            if (!StringUtils.hasText(usuarioId) || solicitud.getValue() == null) {
+                resultados.add(new PerfilBatchItemDTO(usuarioId, PerfilBatchItemDTO.Estado.RECHAZADO,
+                        "El usuarioId y los datos del perfil son obligatorios"));
+                continue;
+            }
+
+            Perfil perfil = existentes.get(usuarioId);
+            boolean nuevo = perfil == null;
+            if (nuevo) {
+                perfil = Perfil.builder()
+                        .usuarioId(usuarioId)
+                        .informacionContactoPublica(false)
+                        .build();
+                creados++;
+            } else {
+                actualizados++;
+            }
+            facetasAnteriores.add(nuevo ? null : FacetasPerfil.de(perfil));
+            PerfilMapper.aplicarCambios(perfil, solicitud.getValue());
+            perfiles.add(perfil);
+            tiposEvento.add(nuevo ? PerfilOutbox.TipoEvento.PERFIL_CREADO : PerfilOutbox.TipoEvento.PERFIL_ACTUALIZADO);
+            resultados.add(new PerfilBatchItemDTO(usuarioId,
+                    nuevo ? PerfilBatchItemDTO.Estado.CREADO : PerfilBatchItemDTO.Estado.ACTUALIZADO, null));
         }
-        if (requestDTO.getLinkGithub() != null) {
-            perfil.setLinkGithub(requestDTO.getLinkGithub());
+
+        // Los INSERT/UPDATE se envían agrupados al hacer flush (hibernate.jdbc.batch_size)
+        perfilRepository.saveAll(perfiles);
+        perfilRepository.flush();
+        facetasService.registrarCambios(facetasAnteriores, perfiles.stream().map(FacetasPerfil::de).toList());
+        // La biografía de los perfiles existentes no se cargó (carga diferida): el estado final de todo
+        // el lote se relee en una consulta en lugar de una por perfil al armar los eventos
+        Map<String, Perfil> guardados = completosPorId(perfiles.stream().map(Perfil::getUsuarioId).toList());
+        for (int i = 0; i < perfiles.size(); i++) {
+            String usuarioId = perfiles.get(i).getUsuarioId();
+            outboxService.registrar(usuarioId, tiposEvento.get(i),
+                    PerfilMapper.mapToResponseDTO(guardados.get(usuarioId)));
+            eventPublisher.publishEvent(new PerfilModificadoEvent(usuarioId));
         }
-        if (requestDTO.getLinkOtraRed() != null) {
-            perfil.setLinkOtraRed(requestDTO.getLinkOtraRed());
+
+        log.debug("Lote procesado: {} creados, {} actualizados, {} rechazados",
+                creados, actualizados, resultados.size() - perfiles.size());
+        return PerfilBatchResponseDTO.builder()
+                .creados(creados)
+                .actualizados(actualizados)
+                .rechazados(resultados.size() - perfiles.size())
+                .resultados(resultados)
+                .build();
+    }
+
+    /**
+     * Crea perfiles por defecto para usuarios recién registrados con un INSERT multi-fila
+     * que ignora los que ya existen; los eventos reentregados no tienen efecto.
+     */
+    @Transactional
+    public int provisionarPerfilesPorDefecto(Collection<String> usuarioIds) {
+        // Orden estable de claves: dos lotes concurrentes con ids en común no se bloquean mutuamente
+        Set<String> ids = usuarioIds.stream()
+                .filter(StringUtils::hasText)
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (ids.isEmpty()) {
+            return 0;
         }
 
-        Perfil saved = perfilRepository.save(perfil);
-        log.info("Perfil guardado exitosamente para usuario: {}", usuarioId);
-        
-        return mapToResponseDTO(saved);
+        // Los usuarios sin perfil no tienen entrada en caché, así que no hace falta invalidar.
+        // Los perfiles por defecto son privados: no cuentan en las facetas
+        List<Perfil> creados = perfilRepository.insertarPerfilesPorDefecto(ids);
+        // Misma transacción y mismo evento que cualquier otra creación: los consumidores de perfiles.eventos
+        // también ven estos perfiles. Los reentregados no se insertan de nuevo ni repiten el evento
+        for (Perfil perfil : creados) {
+            outboxService.registrar(perfil.getUsuarioId(), PerfilOutbox.TipoEvento.PERFIL_CREADO,
+                    PerfilMapper.mapToResponseDTO(perfil));
+        }
+        log.debug("Perfiles por defecto creados: {} de {} usuarios registrados", creados.size(), ids.size());
+        return creados.size();
     }
 
+    /**
+     * Lectura sin caché: la caché de respuestas del controlador (PerfilRespuestasCache) es la única y descarta
+     * lo leído antes de una invalidación. Una caché intermedia del DTO podría devolverle el estado anterior.
+     */
     @Transactional(readOnly = true)
     public PerfilResponseDTO obtenerPerfil(String usuarioId) {
-        log.info("Obteniendo perfil para usuario: {}", usuarioId);
+        log.debug("Obteniendo perfil para usuario: {}", usuarioId);
+        escriturasRecientes.leerDelPrimarioSiRecientes(List.of(usuarioId));
         
-        Perfil perfil = perfilRepository.findByUsuarioId(usuarioId)
+        Perfil perfil = perfilRepository.buscarCompletos(List.of(usuarioId)).stream()
+                .findFirst()
                 .orElseThrow(() -> {
-                    log.warn("Perfil no encontrado para usuario: {}", usuarioId);
+                    log.debug("Perfil no encontrado para usuario: {}", usuarioId);
                     return new PerfilNotFoundException("Perfil no encontrado para el usuario: " + usuarioId);
                 });
         
-        return mapToResponseDTO(perfil);
+        return PerfilMapper.mapToResponseDTO(perfil);
     }
 
     @Transactional(readOnly = true)
-    public List<PerfilResponseDTO> obtenerPerfilesPublicos() {
-        log.info("Obteniendo perfiles públicos");
-        
-        List<Perfil> perfiles = perfilRepository.findAll().stream()
-                .filter(p -> Boolean.TRUE.equals(p.getInformacionContactoPublica()))
+    public List<PerfilConsultaItemDTO> obtenerPerfiles(List<String> usuarioIds) {
+        log.debug("Obteniendo {} perfiles por id", usuarioIds.size());
+
+        validarCantidadIds(usuarioIds);
+        escriturasRecientes.leerDelPrimarioSiRecientes(usuarioIds);
+
+        // Una sola consulta para todos los ids; la respuesta conserva el orden de la petición
+        Map<String, Perfil> encontrados = completosPorId(new LinkedHashSet<>(usuarioIds));
+
+        return usuarioIds.stream()
+                .map(usuarioId -> new PerfilConsultaItemDTO(usuarioId, encontrados.containsKey(usuarioId),
+                        encontrados.containsKey(usuarioId)
+                                ? PerfilMapper.mapToResponseDTO(encontrados.get(usuarioId)) : null))
                 .collect(Collectors.toList());
-        
+    }
+
+    /**
+     * Lectura con un subconjunto de campos (?fields=): solo se leen y escriben esas columnas.
+     * No pasa por la caché de respuestas, que guarda la representación completa.
+     */
+    @Transactional(readOnly = true)
+    public PerfilVersion escribirPerfil(String usuarioId, List<CampoPerfil> campos,
+                                        JsonGenerator generador) throws IOException {
+        escriturasRecientes.leerDelPrimarioSiRecientes(List.of(usuarioId));
+        return perfilJsonRepository.escribirPerfil(usuarioId, campos, generador)
+                .orElseThrow(() -> new PerfilNotFoundException("Perfil no encontrado para el usuario: " + usuarioId));
+    }
+
+    @Transactional(readOnly = true)
+    public void escribirPerfiles(List<String> usuarioIds, List<CampoPerfil> campos,
+                                 JsonGenerator generador) throws IOException {
+        validarCantidadIds(usuarioIds);
+        escriturasRecientes.leerDelPrimarioSiRecientes(usuarioIds);
+        perfilJsonRepository.escribirPorIds(usuarioIds, campos, generador);
+    }
+
+    @Transactional(readOnly = true)
+    public PerfilVersion obtenerVersionPerfil(String usuarioId) {
+        escriturasRecientes.leerDelPrimarioSiRecientes(List.of(usuarioId));
+        return perfilRepository.findVersionByUsuarioId(usuarioId)
+                .orElseThrow(() -> new PerfilNotFoundException("Perfil no encontrado para el usuario: " + usuarioId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PerfilResponseDTO> obtenerPerfilesPublicos(String despuesDe, int limite,
+                                                           String paisResidencia, String organizacion) {
+        log.debug("Obteniendo perfiles públicos después de: {} (límite {})", despuesDe, limite);
+
+        validarLimite(limite);
+        List<Perfil> perfiles = perfilRepository.findPublicosDespuesDe(
+                despuesDe != null ? despuesDe : "",
+                StringUtils.hasText(paisResidencia) ? paisResidencia : null,
+                StringUtils.hasText(organizacion) ? organizacion : null,
+                PageRequest.of(0, limite));
+
         return perfiles.stream()
-                .map(this::mapToResponseDTO)
+                .map(PerfilMapper::mapToResponseDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
+    public List<PerfilVersion> obtenerVersionesPublicas(String despuesDe, int limite,
+                                                        String paisResidencia, String organizacion) {
+        validarLimite(limite);
+        return perfilRepository.findVersionesPublicasDespuesDe(
+                despuesDe != null ? despuesDe : "",
+                StringUtils.hasText(paisResidencia) ? paisResidencia : null,
+                StringUtils.hasText(organizacion) ? organizacion : null,
+                PageRequest.of(0, limite));
+    }
+
+    /**
+     * Camino sin entidades: cada fila de la página se escribe en el generador como JSON. Con todos los
+     * campos, la forma es la misma que la lista de PerfilResponseDTO de obtenerPerfilesPublicos.
+     *
+     * @return usuarioId y versión de los perfiles escritos (para el ETag y el cursor siguiente)
+     */
+    @Transactional(readOnly = true)
+    public List<PerfilVersion> escribirPerfilesPublicos(String despuesDe, int limite, String paisResidencia,
+                                                        String organizacion, List<CampoPerfil> campos,
+                                                        JsonGenerator generador) throws IOException {
+        validarLimite(limite);
+        return perfilJsonRepository.escribirPublicos(
+                despuesDe != null ? despuesDe : "",
+                limite,
+                StringUtils.hasText(paisResidencia) ? paisResidencia : null,
+                StringUtils.hasText(organizacion) ? organizacion : null,
+                campos,
+                generador);
+    }
+
+    /**
+     * Búsqueda de texto completo en perfiles públicos, escrita como arreglo JSON en orden de relevancia.
+     *
+     * @param despuesDe cursor de la página anterior (CursorBusqueda codificado), o null
+     * @return posición de cada perfil escrito (para el cursor siguiente)
+     */
+    @Transactional(readOnly = true)
+    public List<CursorBusqueda> buscarPerfilesPublicos(String texto, String despuesDe, int limite,
+                                                       List<CampoPerfil> campos, JsonGenerator generador) throws IOException {
+        if (!StringUtils.hasText(texto) || texto.length() > LONGITUD_MAXIMA_BUSQUEDA) {
+            throw new ParametroInvalidoException(
+                    "El texto de búsqueda es obligatorio y admite hasta " + LONGITUD_MAXIMA_BUSQUEDA + " caracteres");
+        }
+        validarLimite(limite);
+        CursorBusqueda cursor = StringUtils.hasText(despuesDe) ? CursorBusqueda.decodificar(despuesDe) : null;
+        return perfilJsonRepository.buscarPublicos(texto.trim(), cursor, limite, campos, generador);
+    }
+
+    public PerfilFacetasDTO obtenerFacetasPublicas() {
+        return facetasService.obtenerFacetas();
+    }
+
+    @Transactional(readOnly = true)
+    public long exportarPerfilesPublicos(List<CampoPerfil> campos, JsonGenerator generador) throws IOException {
+        log.debug("Exportando perfiles públicos");
+        long total = perfilJsonRepository.escribirTodosPublicos(campos, generador);
+        log.debug("Exportación de perfiles públicos finalizada: {} perfiles", total);
+        return total;
+    }
+
     @Transactional
     public void eliminarPerfil(String usuarioId) {
-        log.info("Eliminando perfil para usuario: {}", usuarioId);
+        log.debug("Eliminando perfil para usuario: {}", usuarioId);
         
-        if (!perfilRepository.existsByUsuarioId(usuarioId)) {
-            log.warn("Perfil no encontrado para eliminar: {}", usuarioId);
-            throw new PerfilNotFoundException("Perfil no encontrado para el usuario: " + usuarioId);
-        }
+        FacetasPerfil anterior = perfilRepository.findFacetasByUsuarioId(usuarioId)
+                .orElseThrow(() -> {
+                    log.debug("Perfil no encontrado para eliminar: {}", usuarioId);
+                    return new PerfilNotFoundException("Perfil no encontrado para el usuario: " + usuarioId);
+                });
         
         try {
             perfilRepository.deleteById(usuarioId);
-            log.info("Perfil eliminado exitosamente para usuario: {}", usuarioId);
+            facetasService.registrarCambio(anterior, null);
+            outboxService.registrar(usuarioId, PerfilOutbox.TipoEvento.PERFIL_ELIMINADO, Map.of("usuarioId", usuarioId));
+            eventPublisher.publishEvent(new PerfilModificadoEvent(usuarioId));
+            log.debug("Perfil eliminado exitosamente para usuario: {}", usuarioId);
         } catch (Exception e) {
             log.error("Error al eliminar perfil para usuario: {}", usuarioId, e);
             throw new RuntimeException("Error al eliminar perfil: " + e.getMessage(), e);
         }
     }
 
-    private PerfilResponseDTO mapToResponseDTO(Perfil perfil) {
-        return PerfilResponseDTO.builder()
-                .usuarioId(perfil.getUsuarioId())
-                .urlPaginaPersonal(perfil.getUrlPaginaPersonal())
-                .apodo(perfil.getApodo())
-                .informacionContactoPublica(perfil.getInformacionContactoPublica())
-                .direccionCorrespondencia(perfil.getDireccionCorrespondencia())
-                .biografia(perfil.getBiografia())
-                .organizacion(perfil.getOrganizacion())
-                .paisResidencia(perfil.getPaisResidencia())
-                .linkFacebook(perfil.getLinkFacebook())
-                .linkTwitter(perfil.getLinkTwitter())
-                .linkLinkedIn(perfil.getLinkLinkedIn())
-                .linkInstagram(perfil.getLinkInstagram())
-                .linkGithub(perfil.getLinkGithub())
-                .linkOtraRed(perfil.getLinkOtraRed())
-                .createdAt(perfil.getCreatedAt())
-                .updatedAt(perfil.getUpdatedAt())
-                .build();
+    private Map<String, Perfil> completosPorId(Collection<String> usuarioIds) {
+        return perfilRepository.buscarCompletos(usuarioIds).stream()
+                .collect(Collectors.toMap(Perfil::getUsuarioId, Function.identity()));
+    }
+
+    private void validarCantidadIds(List<String> usuarioIds) {
+        if (usuarioIds.isEmpty() || usuarioIds.size() > LIMITE_MAXIMO_PAGINA) {
+            throw new ParametroInvalidoException("Debe consultar entre 1 y " + LIMITE_MAXIMO_PAGINA + " perfiles");
+        }
     }
-}
 
+    private void validarLimite(int limite) {
+        if (limite < 1 || limite > LIMITE_MAXIMO_PAGINA) {
+            throw new ParametroInvalidoException("El límite debe estar entre 1 y " + LIMITE_MAXIMO_PAGINA);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.uniquindio.archmicroserv.gestion_perfil.config.ReplicasDataSource;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * Verifica periódicamente las réplicas de lectura (registrado por ReplicasConfig; sin réplicas configuradas el
+ * detalle queda vacío). Sin réplicas disponibles el servicio sigue atendiendo las lecturas desde el primario, así
+ * que el estado es UP y el detalle indica qué réplicas están fuera.
+ */
+@RequiredArgsConstructor
+public class ReplicasHealthIndicator implements HealthIndicator {
+
+    private final ReplicasDataSource replicasDataSource;
+
+    @Scheduled(fixedDelayString = "${gestorperfil.replicas.verificacion-ms:5000}")
+    public void verificar() {
+        replicasDataSource.verificar();
+    }
+
+    @Override
+    public Health health() {
+        return Health.up()
+                .withDetail("disponibles", replicasDataSource.disponibles())
+                .withDetail("replicas", replicasDataSource.estado())
+                .build();
+    }
+}
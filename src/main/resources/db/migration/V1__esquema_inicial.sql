@@ -0,0 +1,51 @@
+-- Esquema inicial: el mismo que generaba Hibernate con ddl-auto=update más los objetos de db/indices.sql.
+-- Todas las sentencias son idempotentes: en una base existente (baseline-version=0) solo crean lo que falte.
+
+CREATE TABLE IF NOT EXISTS perfiles (
+    usuario_id                   VARCHAR(255) PRIMARY KEY,
+    url_pagina_personal          VARCHAR(500),
+    apodo                        VARCHAR(100),
+    informacion_contacto_publica BOOLEAN      NOT NULL,
+    direccion_correspondencia    VARCHAR(500),
+    biografia                    TEXT,
+    organizacion                 VARCHAR(255),
+    pais_residencia              VARCHAR(100),
+    link_facebook                VARCHAR(500),
+    link_twitter                 VARCHAR(500),
+    link_linkedin                VARCHAR(500),
+    link_instagram               VARCHAR(500),
+    link_github                  VARCHAR(500),
+    link_otra_red                VARCHAR(500),
+    created_at                   TIMESTAMP(6) NOT NULL,
+    updated_at                   TIMESTAMP(6)
+);
+
+-- Búsqueda de texto completo: columna generada (PostgreSQL la recalcula en cada INSERT/UPDATE, también
+-- en el upsert nativo) con pesos apodo > organización > biografía. La entidad Perfil no la mapea.
+ALTER TABLE perfiles ADD COLUMN IF NOT EXISTS busqueda tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('spanish', coalesce(apodo, '')), 'A') ||
+    setweight(to_tsvector('spanish', coalesce(organizacion, '')), 'B') ||
+    setweight(to_tsvector('spanish', coalesce(biografia, '')), 'C')
+) STORED;
+
+-- Solo se buscan perfiles públicos: el índice parcial no incluye los privados
+CREATE INDEX IF NOT EXISTS idx_perfiles_busqueda ON perfiles USING GIN (busqueda) WHERE informacion_contacto_publica = true;
+
+-- Outbox de eventos de perfil; la secuencia avanza de 50 en 50 (allocationSize de PerfilOutbox)
+CREATE SEQUENCE IF NOT EXISTS perfil_outbox_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS perfil_outbox (
+    id          BIGINT       PRIMARY KEY,
+    usuario_id  VARCHAR(255) NOT NULL,
+    tipo_evento VARCHAR(50)  NOT NULL,
+    payload     TEXT         NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL
+);
+
+-- Conteos de perfiles públicos por país y organización (PerfilFacetasService)
+CREATE TABLE IF NOT EXISTS perfil_facetas (
+    tipo  VARCHAR(50)  NOT NULL,
+    valor VARCHAR(255) NOT NULL,
+    total BIGINT       NOT NULL,
+    PRIMARY KEY (tipo, valor)
+);
@@ -0,0 +1,19 @@
+-- flyway:executeInTransaction=false
+-- Índices de las consultas de perfiles.
+-- En una base existente (baseline) la tabla ya tiene datos: CONCURRENTLY construye cada índice sin bloquear las
+-- escrituras, a cambio de no poder ejecutarse dentro de una transacción. Si la migración falla a mitad, el índice
+-- queda marcado como INVALID y IF NOT EXISTS lo saltaría: borrarlo con DROP INDEX CONCURRENTLY antes de reintentar.
+
+-- Paginación por cursor de perfiles públicos (findPublicosDespuesDe, PerfilJsonRepository)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_perfiles_publicos ON perfiles (usuario_id)
+    WHERE informacion_contacto_publica = true;
+
+-- Filtros ?paisResidencia= y ?organizacion= del listado público; con usuario_id al final el filtro
+-- y el orden por cursor se resuelven con el mismo índice
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_perfiles_pais_residencia ON perfiles (pais_residencia, usuario_id)
+    WHERE informacion_contacto_publica = true;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_perfiles_organizacion ON perfiles (organizacion, usuario_id)
+    WHERE informacion_contacto_publica = true;
+
+-- Consultas por fecha de modificación (perfiles cambiados desde una fecha)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_perfiles_updated_at ON perfiles (updated_at);
@@ -0,0 +1,4 @@
+-- Versión de cada perfil para la concurrencia optimista: aumenta con cada cambio y es el ETag del perfil.
+-- PUT con If-Match solo escribe si la versión no cambió desde que el cliente leyó el perfil.
+-- Las filas existentes empiezan en 0.
+ALTER TABLE perfiles ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,7 @@
+-- Reclamo de los eventos del outbox por el relay (PerfilOutboxRepository.reclamarPendientes): la fila se marca
+-- hasta reclamado_hasta y se confirma antes de publicar, así el relay no retiene bloqueos ni conexiones mientras
+-- espera al broker. Si la réplica cae, el reclamo vence y otro relay retoma el evento. No se mapea en la entidad.
+ALTER TABLE perfil_outbox ADD COLUMN IF NOT EXISTS reclamado_hasta TIMESTAMPTZ;
+
+-- Usuarios con eventos reclamados: un relay no reclama eventos de un usuario que otro aún está publicando
+CREATE INDEX IF NOT EXISTS idx_perfil_outbox_reclamados ON perfil_outbox (usuario_id) WHERE reclamado_hasta IS NOT NULL;
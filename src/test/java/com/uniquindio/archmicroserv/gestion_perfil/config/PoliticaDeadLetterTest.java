@@ -0,0 +1,87 @@
+package com.uniquindio.archmicroserv.gestion_perfil.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.*;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withNoContent;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withUnauthorizedRequest;
+
+@DisplayName("Tests unitarios para PoliticaDeadLetter")
+class PoliticaDeadLetterTest {
+
+    private static final String URL = "http://rabbitmq:15672";
+
+    private RestClient.Builder builder;
+    private MockRestServiceServer servidor;
+
+    @BeforeEach
+    void setUp() {
+        builder = RestClient.builder();
+        servidor = MockRestServiceServer.bindTo(builder).build();
+    }
+
+    @Test
+    @DisplayName("Aplica la policy con el dead-letter exchange a gestorperfil.queue")
+    void testAplicarPolitica() {
+        String credenciales = Base64.getEncoder().encodeToString("usuario:clave".getBytes(StandardCharsets.UTF_8));
+        servidor.expect(requestTo(URL + "/api/policies/foro/gestorperfil-dlx"))
+                .andExpect(method(HttpMethod.PUT))
+                .andExpect(header(HttpHeaders.AUTHORIZATION, "Basic " + credenciales))
+                .andExpect(jsonPath("$.pattern").value("^gestorperfil\\.queue$"))
+                .andExpect(jsonPath("$.apply-to").value("queues"))
+                .andExpect(jsonPath("$.definition.dead-letter-exchange").value(RabbitMQConfig.GESTORPERFIL_DLX))
+                .andExpect(jsonPath("$.definition.dead-letter-routing-key").value(RabbitMQConfig.GESTORPERFIL_DLQ))
+                .andRespond(withNoContent());
+
+        new PoliticaDeadLetter(builder, URL, "usuario", "clave", "foro", true).aplicar();
+
+        servidor.verify();
+    }
+
+    @Test
+    @DisplayName("El virtual host por defecto se codifica en la ruta")
+    void testVirtualHostPorDefecto() {
+        servidor.expect(requestTo(URL + "/api/policies/%2F/gestorperfil-dlx"))
+                .andRespond(withNoContent());
+
+        new PoliticaDeadLetter(builder, URL, "guest", "guest", "/", true).aplicar();
+
+        servidor.verify();
+    }
+
+    @Test
+    @DisplayName("Sin permisos para crear policies el arranque continúa")
+    void testSinPermisos() {
+        servidor.expect(requestTo(URL + "/api/policies/foro/gestorperfil-dlx"))
+                .andRespond(withUnauthorizedRequest());
+
+        PoliticaDeadLetter politica = new PoliticaDeadLetter(builder, URL, "usuario", "clave", "foro", true);
+
+        assertDoesNotThrow(politica::aplicar);
+        servidor.verify();
+    }
+
+    @Test
+    @DisplayName("Deshabilitada no llama a la API de administración")
+    void testDeshabilitada() {
+        new PoliticaDeadLetter(builder, URL, "usuario", "clave", "foro", false).aplicar();
+
+        servidor.verify();
+    }
+
+    @Test
+    @DisplayName("gestorperfil.queue se declara sin argumentos")
+    void testColaSinArgumentos() {
+        assertTrue(new RabbitMQConfig().gestorperfilQueue().getArguments().isEmpty());
+    }
+}
@@ -0,0 +1,177 @@
+package com.uniquindio.archmicroserv.gestion_perfil.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests unitarios para ReplicasDataSource")
+class ReplicasDataSourceTest {
+
+    @Mock
+    private DataSource primario;
+
+    @Mock
+    private DataSource replica1;
+
+    @Mock
+    private DataSource replica2;
+
+    @Mock
+    private Connection conexionPrimario;
+
+    @Mock
+    private Connection conexionReplica1;
+
+    @Mock
+    private Connection conexionReplica2;
+
+    private ReplicasDataSource replicasDataSource;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", replica1);
+        replicas.put("replica-2", replica2);
+        replicasDataSource = new ReplicasDataSource(primario, replicas);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sincronizacion -> sincronizacion.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Lecturas - Se reparten entre las réplicas por turnos")
+    void testTurnoRotativo() throws SQLException {
+        when(replica1.getConnection()).thenReturn(conexionReplica1);
+        when(replica2.getConnection()).thenReturn(conexionReplica2);
+
+        assertSame(conexionReplica1, replicasDataSource.getConnection());
+        assertSame(conexionReplica2, replicasDataSource.getConnection());
+        assertSame(conexionReplica1, replicasDataSource.getConnection());
+        verify(primario, never()).getConnection();
+    }
+
+    @Test
+    @DisplayName("Réplica caída - Pasa a la siguiente y queda fuera hasta la verificación")
+    void testReplicaCaida() throws SQLException {
+        when(replica1.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(replica2.getConnection()).thenReturn(conexionReplica2);
+
+        assertSame(conexionReplica2, replicasDataSource.getConnection());
+        assertSame(conexionReplica2, replicasDataSource.getConnection());
+        assertSame(conexionReplica2, replicasDataSource.getConnection());
+
+        // Solo el primer intento llega a la réplica caída
+        verify(replica1, times(1)).getConnection();
+        assertEquals(1, replicasDataSource.disponibles());
+        assertEquals("DOWN: Connection refused", replicasDataSource.estado().get("replica-1"));
+        assertEquals("UP", replicasDataSource.estado().get("replica-2"));
+    }
+
+    @Test
+    @DisplayName("Todas las réplicas caídas - Las lecturas van al primario")
+    void testSinReplicasDisponibles() throws SQLException {
+        when(replica1.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(replica2.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(primario.getConnection()).thenReturn(conexionPrimario);
+
+        assertSame(conexionPrimario, replicasDataSource.getConnection());
+        assertSame(conexionPrimario, replicasDataSource.getConnection());
+        assertEquals(0, replicasDataSource.disponibles());
+    }
+
+    @Test
+    @DisplayName("Sin réplicas configuradas - Las lecturas van al primario")
+    void testSinReplicasConfiguradas() throws SQLException {
+        when(primario.getConnection()).thenReturn(conexionPrimario);
+        ReplicasDataSource sinReplicas = new ReplicasDataSource(primario, Map.of());
+
+        sinReplicas.verificar();
+
+        assertSame(conexionPrimario, sinReplicas.getConnection());
+        assertTrue(sinReplicas.estado().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Verificación - Una réplica que responde vuelve a recibir lecturas")
+    void testVerificarRecuperaReplica() throws SQLException {
+        when(replica1.getConnection())
+                .thenThrow(new SQLException("Connection refused"))
+                .thenReturn(conexionReplica1);
+        when(replica2.getConnection()).thenReturn(conexionReplica2);
+        when(conexionReplica1.isValid(anyInt())).thenReturn(true);
+        when(conexionReplica2.isValid(anyInt())).thenReturn(true);
+
+        replicasDataSource.getConnection();
+        assertEquals(1, replicasDataSource.disponibles());
+
+        replicasDataSource.verificar();
+
+        assertEquals(2, replicasDataSource.disponibles());
+        verify(conexionReplica1).close();
+    }
+
+    @Test
+    @DisplayName("Verificación - Una conexión inválida deja la réplica fuera")
+    void testVerificarConexionInvalida() throws SQLException {
+        when(replica1.getConnection()).thenReturn(conexionReplica1);
+        when(replica2.getConnection()).thenReturn(conexionReplica2);
+        when(conexionReplica1.isValid(anyInt())).thenReturn(false);
+        when(conexionReplica2.isValid(anyInt())).thenReturn(true);
+
+        replicasDataSource.verificar();
+
+        assertEquals(1, replicasDataSource.disponibles());
+        assertEquals("DOWN: La conexión no es válida", replicasDataSource.estado().get("replica-1"));
+    }
+
+    @Test
+    @DisplayName("Transacción fijada al primario - No usa réplicas hasta que termina")
+    void testLeerDelPrimario() throws SQLException {
+        when(primario.getConnection()).thenReturn(conexionPrimario);
+        when(replica1.getConnection()).thenReturn(conexionReplica1);
+        TransactionSynchronizationManager.initSynchronization();
+
+        ReplicasDataSource.leerDelPrimario();
+        ReplicasDataSource.leerDelPrimario();
+
+        assertSame(conexionPrimario, replicasDataSource.getConnection());
+        assertEquals(1, TransactionSynchronizationManager.getSynchronizations().size());
+
+        // Al completar la transacción se libera la marca
+        tearDown();
+        assertSame(conexionReplica1, replicasDataSource.getConnection());
+    }
+
+    @Test
+    @DisplayName("Sin transacción - Fijar al primario no tiene efecto")
+    void testLeerDelPrimarioSinTransaccion() throws SQLException {
+        when(replica1.getConnection()).thenReturn(conexionReplica1);
+
+        ReplicasDataSource.leerDelPrimario();
+
+        assertSame(conexionReplica1, replicasDataSource.getConnection());
+    }
+}
@@ -0,0 +1,130 @@
+package com.uniquindio.archmicroserv.gestion_perfil.config;
+
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilConsultaItemDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilRepository;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilModificadoEvent;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Dos bases H2 en memoria hacen de primario y réplica; cada una guarda un apodo distinto para el mismo
+ * perfil, así el resultado muestra de cuál se leyó.
+ */
+@SpringBootTest(properties = {
+        "spring.autoconfigure.exclude=org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration",
+        "spring.datasource.url=jdbc:h2:mem:primario;DB_CLOSE_DELAY=-1",
+        "gestorperfil.replicas.urls=" + ReplicasIntegrationTest.URL_REPLICA,
+        "gestorperfil.replicas.ventana-primario=1m"
+})
+@ActiveProfiles("test")
+@DisplayName("Tests de integración para el enrutamiento a réplicas de lectura")
+class ReplicasIntegrationTest {
+
+    static final String URL_REPLICA = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    private static final String INSERTAR = """
+            INSERT INTO perfiles (usuario_id, apodo, informacion_contacto_publica, created_at, updated_at)
+            VALUES (?, ?, false, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+            """;
+
+    @Autowired
+    private PerfilService perfilService;
+
+    @Autowired
+    private PerfilRepository perfilRepository;
+
+    @Autowired
+    private HikariDataSource primarioDataSource;
+
+    @Autowired
+    private ReplicasDataSource replicasDataSource;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private JdbcTemplate primario;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void setUp() {
+        primario = new JdbcTemplate(primarioDataSource);
+        replica = new JdbcTemplate(new DriverManagerDataSource(URL_REPLICA, "sa", ""));
+        // Hibernate solo crea el esquema en el primario: la réplica recibe el mismo DDL
+        Integer tablas = replica.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'PERFILES'", Integer.class);
+        if (tablas == 0) {
+            primario.queryForList("SCRIPT NODATA", String.class).stream()
+                    .filter(sentencia -> !sentencia.startsWith("--"))
+                    .forEach(replica::execute);
+        }
+        primario.update("DELETE FROM perfiles");
+        replica.update("DELETE FROM perfiles");
+        for (String usuarioId : List.of("user1", "user2", "user3")) {
+            primario.update(INSERTAR, usuarioId, "Primario");
+            replica.update(INSERTAR, usuarioId, "Replica");
+        }
+        replicasDataSource.verificar();
+    }
+
+    @Test
+    @DisplayName("Transacción de solo lectura - Lee de la réplica")
+    void testLecturaDesdeReplica() {
+        assertEquals("Replica", perfilService.obtenerPerfil("user1").getApodo());
+        assertEquals("UP", replicasDataSource.estado().get("replica-1"));
+    }
+
+    @Test
+    @DisplayName("Transacción de escritura - Usa el primario")
+    void testEscrituraEnPrimario() {
+        String apodo = transactionTemplate.execute(estado ->
+                perfilRepository.findById("user1").orElseThrow().getApodo());
+
+        assertEquals("Primario", apodo);
+    }
+
+    @Test
+    @DisplayName("Después de una escritura propia - Las lecturas de ese usuario van al primario")
+    void testLeerLoEscrito() {
+        transactionTemplate.executeWithoutResult(estado -> {
+            primario.update("UPDATE perfiles SET apodo = ? WHERE usuario_id = ?", "Escrito", "user2");
+            eventPublisher.publishEvent(new PerfilModificadoEvent("user2"));
+        });
+
+        assertEquals("Escrito", perfilService.obtenerPerfil("user2").getApodo());
+        // Los demás usuarios siguen leyendo de la réplica
+        List<PerfilConsultaItemDTO> perfiles = perfilService.obtenerPerfiles(List.of("user3"));
+        assertEquals("Replica", perfiles.get(0).getPerfil().getApodo());
+        // Una consulta de varios ids con uno reciente va entera al primario
+        perfiles = perfilService.obtenerPerfiles(List.of("user3", "user2"));
+        assertEquals("Primario", perfiles.get(0).getPerfil().getApodo());
+        assertEquals("Escrito", perfiles.get(1).getPerfil().getApodo());
+    }
+
+    @Test
+    @DisplayName("Métricas - El pool de cada réplica se registra como el del primario")
+    void testMetricasPoolReplica() {
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "primario").gauge());
+        assertNotNull(meterRegistry.find("hikaricp.connections").tag("pool", "replica-1").gauge());
+    }
+}
@@ -0,0 +1,179 @@
+package com.uniquindio.archmicroserv.gestion_perfil.controller;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests de AccessLogFilter - Línea estructurada y muestreo")
+class AccessLogFilterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Logger logger = (Logger) LoggerFactory.getLogger(AccessLogFilter.LOGGER);
+    private ListAppender<ILoggingEvent> eventos;
+
+    @BeforeEach
+    void setUp() {
+        eventos = new ListAppender<>();
+        eventos.start();
+        logger.addAppender(eventos);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(eventos);
+    }
+
+    @Test
+    @DisplayName("Escritura - Siempre se registra con ruta, estado y duración")
+    void testRegistraEscritura() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/api/v1/perfiles/user1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/v1/perfiles/{usuarioId}");
+
+        filtrar(new AccessLogFilter(0), request, 200);
+
+        assertEquals(1, eventos.list.size());
+        JsonNode linea = objectMapper.readTree(eventos.list.get(0).getFormattedMessage());
+        assertEquals("PUT", linea.get("metodo").asText());
+        assertEquals("/api/v1/perfiles/{usuarioId}", linea.get("ruta").asText());
+        assertEquals("/api/v1/perfiles/user1", linea.get("uri").asText());
+        assertEquals(200, linea.get("estado").asInt());
+        assertTrue(linea.get("duracionMs").asDouble() >= 0);
+        assertEquals(1.0, linea.get("muestreo").asDouble());
+        assertTrue(linea.has("fecha"));
+    }
+
+    @Test
+    @DisplayName("Lectura exitosa - Se omite con muestreo 0 y se registra con muestreo 1")
+    void testMuestreoLecturas() throws Exception {
+        filtrar(new AccessLogFilter(0), new MockHttpServletRequest("GET", "/api/v1/perfiles/user1"), 200);
+        assertTrue(eventos.list.isEmpty());
+
+        filtrar(new AccessLogFilter(1), new MockHttpServletRequest("GET", "/api/v1/perfiles/user1"), 304);
+        assertEquals(1, eventos.list.size());
+    }
+
+    @Test
+    @DisplayName("Lectura muestreada - El campo muestreo es el peso de la línea (1 / fracción)")
+    void testPesoLecturaMuestreada() throws Exception {
+        AccessLogFilter filtro = new AccessLogFilter(0.25);
+        for (int i = 0; i < 200; i++) {
+            filtrar(filtro, new MockHttpServletRequest("GET", "/api/v1/perfiles/user1"), 200);
+        }
+
+        assertFalse(eventos.list.isEmpty());
+        for (ILoggingEvent evento : eventos.list) {
+            assertEquals(4.0, objectMapper.readTree(evento.getFormattedMessage()).get("muestreo").asDouble());
+        }
+    }
+
+    @Test
+    @DisplayName("Lectura con error - Se registra aunque el muestreo sea 0")
+    void testRegistraErrores() throws Exception {
+        filtrar(new AccessLogFilter(0), new MockHttpServletRequest("GET", "/api/v1/perfiles/noexiste"), 404);
+
+        assertEquals(1, eventos.list.size());
+        assertEquals(404, objectMapper.readTree(eventos.list.get(0).getFormattedMessage()).get("estado").asInt());
+    }
+
+    @Test
+    @DisplayName("Respuesta asíncrona completa - Se registra al completarse con el estado final")
+    void testRespuestaAsincrona() throws Exception {
+        MockHttpServletRequest request = asincrona();
+
+        MockAsyncContext contexto = filtrarAsincrona(new AccessLogFilter(1), request);
+        assertTrue(eventos.list.isEmpty());
+        contexto.complete();
+
+        assertEquals(1, eventos.list.size());
+        JsonNode linea = objectMapper.readTree(eventos.list.get(0).getFormattedMessage());
+        assertEquals(200, linea.get("estado").asInt());
+        assertFalse(linea.has("fallo"));
+    }
+
+    @Test
+    @DisplayName("Respuesta asíncrona con error - Una sola línea con estado 500, causa y duración")
+    void testRespuestaAsincronaError() throws Exception {
+        MockHttpServletRequest request = asincrona();
+
+        // La exportación ya había enviado el 200 cuando el cliente se desconectó; con muestreo 0
+        // la línea solo aparece porque la petición falló
+        MockAsyncContext contexto = filtrarAsincrona(new AccessLogFilter(0), request);
+        for (AsyncListener listener : contexto.getListeners()) {
+            listener.onError(new AsyncEvent(contexto, new IOException("Broken pipe")));
+        }
+        contexto.complete();
+
+        assertEquals(1, eventos.list.size());
+        JsonNode linea = objectMapper.readTree(eventos.list.get(0).getFormattedMessage());
+        assertEquals(500, linea.get("estado").asInt());
+        assertEquals("error", linea.get("fallo").asText());
+        assertEquals(IOException.class.getName(), linea.get("causa").asText());
+        assertTrue(linea.get("duracionMs").asDouble() >= 0);
+        assertEquals(1.0, linea.get("muestreo").asDouble());
+    }
+
+    @Test
+    @DisplayName("Respuesta asíncrona con timeout - Se registra con 503 aunque el muestreo sea 0")
+    void testRespuestaAsincronaTimeout() throws Exception {
+        MockHttpServletRequest request = asincrona();
+
+        MockAsyncContext contexto = filtrarAsincrona(new AccessLogFilter(0), request);
+        for (AsyncListener listener : contexto.getListeners()) {
+            listener.onTimeout(new AsyncEvent(contexto));
+        }
+        contexto.complete();
+
+        assertEquals(1, eventos.list.size());
+        JsonNode linea = objectMapper.readTree(eventos.list.get(0).getFormattedMessage());
+        assertEquals(503, linea.get("estado").asInt());
+        assertEquals("timeout", linea.get("fallo").asText());
+        assertFalse(linea.has("causa"));
+    }
+
+    @Test
+    @DisplayName("Muestreo fuera de [0, 1] - Se rechaza al arrancar")
+    void testMuestreoInvalido() {
+        assertThrows(IllegalArgumentException.class, () -> new AccessLogFilter(1.5));
+    }
+
+    private static MockHttpServletRequest asincrona() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/perfiles/exportar");
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    // La cadena inicia el procesamiento asíncrono con el 200 ya fijado, como la exportación NDJSON
+    private static MockAsyncContext filtrarAsincrona(AccessLogFilter filtro, MockHttpServletRequest request)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(200);
+        filtro.doFilter(request, response, (req, res) -> req.startAsync());
+        return (MockAsyncContext) request.getAsyncContext();
+    }
+
+    private static void filtrar(AccessLogFilter filtro, MockHttpServletRequest request, int estado)
+            throws ServletException, IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setStatus(estado);
+        filtro.doFilter(request, response, new MockFilterChain());
+    }
+}
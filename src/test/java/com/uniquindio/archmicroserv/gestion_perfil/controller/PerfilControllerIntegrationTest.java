@@ -1,43 +1,96 @@
 package com.uniquindio.archmicroserv.gestion_perfil.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.uniquindio.archmicroserv.gestion_perfil.config.FormatosBinariosConfig;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilBatchItemDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilBatchRequestDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilBatchResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilConsultaItemDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilFacetasDTO;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.exceptions.PerfilVersionMismatchException;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CampoPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CursorBusqueda;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilVersion;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.VersionEsperada;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.VistaPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilRespuestasCache;
 import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilService;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(PerfilController.class)
+@Import({FormatosBinariosConfig.class, PerfilRespuestasCache.class})
 @ActiveProfiles("test")
 @DisplayName("Tests de integración para PerfilController")
 class PerfilControllerIntegrationTest {
 
+    // Fecha de creación de los perfiles simulados: forma parte de su ETag
+    private static final LocalDateTime CREADO = LocalDateTime.of(2025, 1, 10, 8, 30, 0, 123456000);
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PerfilRespuestasCache respuestasCache;
+
     @MockBean
     private PerfilService perfilService;
 
+    // La caché de respuestas vive en el contexto compartido entre tests
+    @AfterEach
+    void limpiarCache() {
+        respuestasCache.invalidarTodas();
+    }
+
     @Test
     @DisplayName("POST /api/v1/perfiles/{usuarioId} - Crear perfil exitosamente")
     void testCrearPerfil_Success() throws Exception {
@@ -76,6 +129,54 @@ class PerfilControllerIntegrationTest {
         verify(perfilService).crearOActualizarPerfil(eq("testuser"), any(PerfilRequestDTO.class));
     }
 
+    @Test
+    @DisplayName("POST /api/v1/perfiles/batch - Crear o actualizar perfiles en lote")
+    void testCrearOActualizarPerfilesEnLote() throws Exception {
+        // Given
+        PerfilBatchRequestDTO requestDTO = PerfilBatchRequestDTO.builder()
+                .perfiles(Map.of(
+                        "user1", PerfilRequestDTO.builder().apodo("User 1").build(),
+                        "user2", PerfilRequestDTO.builder().apodo("User 2").build()))
+                .build();
+        PerfilBatchResponseDTO responseDTO = PerfilBatchResponseDTO.builder()
+                .creados(1)
+                .actualizados(1)
+                .resultados(List.of(
+                        new PerfilBatchItemDTO("user1", PerfilBatchItemDTO.Estado.CREADO, null),
+                        new PerfilBatchItemDTO("user2", PerfilBatchItemDTO.Estado.ACTUALIZADO, null)))
+                .build();
+        when(perfilService.crearOActualizarPerfiles(any())).thenReturn(responseDTO);
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/perfiles/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.creados").value(1))
+                .andExpect(jsonPath("$.actualizados").value(1))
+                .andExpect(jsonPath("$.resultados", hasSize(2)))
+                .andExpect(jsonPath("$.resultados[0].estado").value("CREADO"));
+
+        verify(perfilService, never()).crearOActualizarPerfil(any(), any());
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/perfiles/batch - Valida cada perfil del lote")
+    void testCrearOActualizarPerfilesEnLote_Invalido() throws Exception {
+        // Given
+        PerfilBatchRequestDTO requestDTO = PerfilBatchRequestDTO.builder()
+                .perfiles(Map.of("user1", PerfilRequestDTO.builder().apodo("x".repeat(101)).build()))
+                .build();
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/perfiles/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isBadRequest());
+
+        verify(perfilService, never()).crearOActualizarPerfiles(any());
+    }
+
     @Test
     @DisplayName("PUT /api/v1/perfiles/{usuarioId} - Actualizar perfil exitosamente")
     void testActualizarPerfil_Success() throws Exception {
@@ -107,6 +208,137 @@ class PerfilControllerIntegrationTest {
         verify(perfilService).crearOActualizarPerfil(eq("testuser"), any(PerfilRequestDTO.class));
     }
 
+    @Test
+    @DisplayName("PUT /api/v1/perfiles/{usuarioId} - If-Match con la versión vigente actualiza y devuelve el nuevo ETag")
+    void testActualizarPerfil_IfMatch() throws Exception {
+        // Given
+        PerfilRequestDTO requestDTO = PerfilRequestDTO.builder().apodo("Updated User").build();
+        when(perfilService.actualizarPerfil(eq("testuser"), any(PerfilRequestDTO.class),
+                eq(List.of(new VersionEsperada(7L, CREADO)))))
+                .thenReturn(PerfilResponseDTO.builder().usuarioId("testuser").apodo("Updated User")
+                        .createdAt(CREADO).version(8L).build());
+
+        // When & Then
+        mockMvc.perform(put("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-Match", etag(7L))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(8L)))
+                .andExpect(jsonPath("$.version").value(8));
+
+        verify(perfilService, never()).crearOActualizarPerfil(any(), any());
+    }
+
+    @Test
+    @DisplayName("PUT /api/v1/perfiles/{usuarioId} - If-Match acepta el ETag de otra representación y el comodín")
+    void testActualizarPerfil_IfMatchRepresentaciones() throws Exception {
+        // Given
+        PerfilRequestDTO requestDTO = PerfilRequestDTO.builder().apodo("Updated User").build();
+        PerfilResponseDTO responseDTO = PerfilResponseDTO.builder().usuarioId("testuser")
+                .createdAt(CREADO).version(8L).build();
+        when(perfilService.actualizarPerfil(eq("testuser"), any(PerfilRequestDTO.class), any()))
+                .thenReturn(responseDTO);
+
+        // When & Then: un ETag débil nunca coincide en If-Match, ni uno sin fecha de creación
+        mockMvc.perform(put("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-Match", "W/" + etag(6L) + ", " + FormatoRespuesta.CBOR.etag(etag(7L)) + ", "
+                                + PerfilEtags.gzip(FormatoRespuesta.CBOR.etag(etag(5L))) + ", \"4\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk());
+        verify(perfilService).actualizarPerfil(eq("testuser"), any(PerfilRequestDTO.class),
+                eq(List.of(new VersionEsperada(7L, CREADO), new VersionEsperada(5L, CREADO))));
+
+        mockMvc.perform(put("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-Match", "*")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isOk());
+        verify(perfilService).actualizarPerfil(eq("testuser"), any(PerfilRequestDTO.class), isNull());
+    }
+
+    @Test
+    @DisplayName("PUT /api/v1/perfiles/{usuarioId} - If-Match desactualizado responde 412")
+    void testActualizarPerfil_VersionDesactualizada() throws Exception {
+        // Given
+        PerfilRequestDTO requestDTO = PerfilRequestDTO.builder().apodo("Updated User").build();
+        when(perfilService.actualizarPerfil(eq("testuser"), any(PerfilRequestDTO.class),
+                eq(List.of(new VersionEsperada(6L, CREADO)))))
+                .thenThrow(new PerfilVersionMismatchException("El perfil testuser cambió"));
+
+        // When & Then
+        mockMvc.perform(put("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-Match", etag(6L))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestDTO)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status").value(412));
+    }
+
+    @Test
+    @DisplayName("PUT /api/v1/perfiles/{usuarioId} - PUT concurrentes con el mismo If-Match: uno escribe, el otro 412")
+    void testActualizarPerfil_IfMatchConcurrente() throws Exception {
+        // Given: los dos clientes leyeron la versión 7 y llegan al servicio antes de que cualquiera escriba
+        AtomicReference<VersionEsperada> vigente = new AtomicReference<>(new VersionEsperada(7L, CREADO));
+        simularActualizacionCondicional(vigente, new CountDownLatch(2));
+        String ifMatch = etag(7L);
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Integer> estados = new ArrayList<>();
+        try {
+            List<Future<Integer>> peticiones = new ArrayList<>();
+            for (String apodo : List.of("Cliente A", "Cliente B")) {
+                peticiones.add(executor.submit(() -> mockMvc.perform(put("/api/v1/perfiles/{usuarioId}", "testuser")
+                                .header("If-Match", ifMatch)
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(objectMapper.writeValueAsString(
+                                        PerfilRequestDTO.builder().apodo(apodo).build())))
+                        .andReturn().getResponse().getStatus()));
+            }
+            for (Future<Integer> peticion : peticiones) {
+                estados.add(peticion.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then: solo una escritura se aplica y el ETag que ambos leyeron ya no coincide
+        assertEquals(List.of(200, 412), estados.stream().sorted().toList());
+        assertEquals(new VersionEsperada(8L, CREADO), vigente.get());
+        mockMvc.perform(put("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-Match", ifMatch)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(PerfilRequestDTO.builder().apodo("Tarde").build())))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    @DisplayName("PUT /api/v1/perfiles/{usuarioId} - If-Match de un perfil borrado no coincide con el recreado")
+    void testActualizarPerfil_IfMatchPerfilRecreado() throws Exception {
+        // Given: el perfil se borró y se volvió a crear, así que su versión vuelve a ser 0
+        LocalDateTime recreado = CREADO.plusDays(1);
+        AtomicReference<VersionEsperada> vigente = new AtomicReference<>(new VersionEsperada(0L, recreado));
+        simularActualizacionCondicional(vigente, new CountDownLatch(0));
+        String requestJson = objectMapper.writeValueAsString(PerfilRequestDTO.builder().apodo("Nuevo").build());
+
+        // When & Then: el ETag leído antes del borrado repite la versión, pero no la fecha de creación
+        mockMvc.perform(put("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-Match", etag(0L))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals(new VersionEsperada(0L, recreado), vigente.get());
+
+        mockMvc.perform(put("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-Match", PerfilEtags.etag(0L, recreado))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestJson))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", PerfilEtags.etag(1L, recreado)));
+    }
+
     @Test
     @DisplayName("GET /api/v1/perfiles/{usuarioId} - Obtener perfil exitosamente")
     void testObtenerPerfil_Success() throws Exception {
@@ -132,6 +364,422 @@ class PerfilControllerIntegrationTest {
         verify(perfilService).obtenerPerfil("testuser");
     }
 
+    @Test
+    @DisplayName("GET /api/v1/perfiles?ids= - Obtener varios perfiles en una petición")
+    void testObtenerPerfilesPorIds() throws Exception {
+        // Given
+        PerfilResponseDTO perfil1 = PerfilResponseDTO.builder().usuarioId("user1").apodo("User 1").build();
+        when(perfilService.obtenerPerfiles(List.of("user1", "noexiste"))).thenReturn(List.of(
+                new PerfilConsultaItemDTO("user1", true, perfil1),
+                new PerfilConsultaItemDTO("noexiste", false, null)));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles").param("ids", "user1,noexiste"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].usuarioId").value("user1"))
+                .andExpect(jsonPath("$[0].encontrado").value(true))
+                .andExpect(jsonPath("$[0].perfil.apodo").value("User 1"))
+                .andExpect(jsonPath("$[1].usuarioId").value("noexiste"))
+                .andExpect(jsonPath("$[1].encontrado").value(false));
+
+        verify(perfilService, never()).obtenerPerfil(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId} - Incluye ETag y Last-Modified")
+    void testObtenerPerfil_IncluyeValidadores() throws Exception {
+        // Given
+        when(perfilService.obtenerPerfil("testuser")).thenReturn(PerfilResponseDTO.builder()
+                .usuarioId("testuser")
+                .createdAt(CREADO)
+                .updatedAt(LocalDateTime.of(2025, 3, 1, 10, 15, 30, 123456000))
+                .version(7L)
+                .build());
+
+        // When & Then: el ETag es la versión del perfil y su fecha de creación en microsegundos
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7.1736497800123456\""))
+                .andExpect(header().exists("Last-Modified"));
+
+        verify(perfilService, never()).obtenerVersionPerfil(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId} - If-None-Match vigente responde 304 sin cargar el perfil")
+    void testObtenerPerfil_NoModificado() throws Exception {
+        // Given
+        PerfilVersion version = version("testuser", 7L, LocalDateTime.of(2025, 3, 1, 10, 15, 30, 123456789));
+        when(perfilService.obtenerVersionPerfil("testuser")).thenReturn(version);
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-None-Match", etag(7L)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag(7L)));
+
+        verify(perfilService, never()).obtenerPerfil(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId} - ETag desactualizado devuelve el perfil")
+    void testObtenerPerfil_EtagDesactualizado() throws Exception {
+        // Given
+        LocalDateTime actual = LocalDateTime.of(2025, 3, 1, 11, 0);
+        PerfilVersion version = version("testuser", 7L, actual);
+        when(perfilService.obtenerVersionPerfil("testuser")).thenReturn(version);
+        when(perfilService.obtenerPerfil("testuser")).thenReturn(PerfilResponseDTO.builder()
+                .usuarioId("testuser")
+                .createdAt(CREADO)
+                .updatedAt(actual)
+                .version(7L)
+                .build());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-None-Match", etag(6L)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usuarioId").value("testuser"))
+                .andExpect(header().string("ETag", etag(7L)));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId} - Accept CBOR devuelve el mismo DTO en binario")
+    void testObtenerPerfil_Cbor() throws Exception {
+        // Given
+        LocalDateTime version = LocalDateTime.of(2025, 3, 1, 10, 15, 30, 123456000);
+        when(perfilService.obtenerPerfil("testuser")).thenReturn(PerfilResponseDTO.builder()
+                .usuarioId("testuser")
+                .apodo("Ñandú")
+                .informacionContactoPublica(true)
+                .createdAt(CREADO)
+                .updatedAt(version)
+                .version(7L)
+                .build());
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andReturn();
+
+        // Then: el ETag distingue la representación y las fechas son las mismas que en JSON
+        assertEquals("\"7.1736497800123456-cbor\"", result.getResponse().getHeader("ETag"));
+        PerfilResponseDTO perfil = objectMapper.copyWith(new CBORFactory())
+                .readValue(result.getResponse().getContentAsByteArray(), PerfilResponseDTO.class);
+        assertEquals("Ñandú", perfil.getApodo());
+        assertEquals(version, perfil.getUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId} - Con igual preferencia gana la mayor calidad")
+    void testObtenerPerfil_NegociacionPorCalidad() throws Exception {
+        // Given
+        when(perfilService.obtenerPerfil("testuser")).thenReturn(PerfilResponseDTO.builder()
+                .usuarioId("testuser")
+                .build());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("Accept", "application/cbor;q=0.5, application/json"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.usuarioId").value("testuser"));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId} - La segunda petición se sirve con los bytes en caché")
+    void testObtenerPerfil_RespuestaEnCache() throws Exception {
+        // Given
+        when(perfilService.obtenerPerfil("testuser")).thenReturn(PerfilResponseDTO.builder()
+                .usuarioId("testuser")
+                .apodo("Test User")
+                .createdAt(CREADO)
+                .updatedAt(LocalDateTime.of(2025, 3, 1, 10, 15, 30))
+                .version(4L)
+                .build());
+        byte[] primera = mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // When & Then: mismos bytes y validadores, sin volver al servicio; el 304 usa la versión en caché
+        MvcResult segunda = mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("ETag", etag(4L)))
+                .andReturn();
+        assertArrayEquals(primera, segunda.getResponse().getContentAsByteArray());
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-None-Match", etag(4L)))
+                .andExpect(status().isNotModified());
+
+        verify(perfilService, times(1)).obtenerPerfil("testuser");
+        verify(perfilService, never()).obtenerVersionPerfil(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId} - Invalidar el perfil descarta sus respuestas en caché")
+    void testObtenerPerfil_RespuestaInvalidada() throws Exception {
+        // Given
+        when(perfilService.obtenerPerfil("testuser"))
+                .thenReturn(PerfilResponseDTO.builder().usuarioId("testuser").apodo("Antes").createdAt(CREADO)
+                        .updatedAt(LocalDateTime.of(2025, 3, 1, 10, 0)).version(1L).build())
+                .thenReturn(PerfilResponseDTO.builder().usuarioId("testuser").apodo("Después").createdAt(CREADO)
+                        .updatedAt(LocalDateTime.of(2025, 3, 1, 11, 0)).version(2L).build());
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser"))
+                .andExpect(jsonPath("$.apodo").value("Antes"));
+
+        // When
+        respuestasCache.invalidar("testuser");
+
+        // Then
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.apodo").value("Después"));
+        verify(perfilService, times(2)).obtenerPerfil("testuser");
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId} - Con Accept-Encoding gzip se envía la variante comprimida")
+    void testObtenerPerfil_Gzip() throws Exception {
+        // Given: una biografía larga supera el umbral de compresión
+        String biografia = "Biografia de prueba. ".repeat(200);
+        when(perfilService.obtenerPerfil("testuser")).thenReturn(PerfilResponseDTO.builder()
+                .usuarioId("testuser")
+                .biografia(biografia)
+                .createdAt(CREADO)
+                .updatedAt(LocalDateTime.of(2025, 3, 1, 10, 0))
+                .version(1L)
+                .build());
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andReturn();
+
+        // Then
+        byte[] comprimido = result.getResponse().getContentAsByteArray();
+        byte[] cuerpo;
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(comprimido))) {
+            cuerpo = gzip.readAllBytes();
+        }
+        assertTrue(comprimido.length < cuerpo.length);
+        assertEquals(biografia, objectMapper.readValue(cuerpo, PerfilResponseDTO.class).getBiografia());
+
+        // Un cliente sin gzip recibe el cuerpo sin comprimir
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(jsonPath("$.biografia").value(biografia));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId} - La variante gzip tiene su propio ETag y ambas validan")
+    void testObtenerPerfil_GzipEtag() throws Exception {
+        // Given
+        when(perfilService.obtenerPerfil("testuser")).thenReturn(PerfilResponseDTO.builder()
+                .usuarioId("testuser")
+                .biografia("Biografia de prueba. ".repeat(200))
+                .createdAt(CREADO)
+                .updatedAt(LocalDateTime.of(2025, 3, 1, 10, 0))
+                .version(3L)
+                .build());
+
+        // When & Then: mismo perfil, dos representaciones con ETag distinto
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", PerfilEtags.gzip(etag(3L))))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"));
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag(3L)))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"));
+
+        // If-None-Match acepta cualquiera de las dos y el 304 repite el ETag validado y el Vary
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("Accept-Encoding", "gzip")
+                        .header("If-None-Match", PerfilEtags.gzip(etag(3L))))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", PerfilEtags.gzip(etag(3L))))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"));
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser")
+                        .header("If-None-Match", "W/" + etag(3L)))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag(3L)))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"));
+        // Cada variante se serializa una vez (son entradas distintas de la caché); los 304 no cargan el perfil
+        verify(perfilService, times(2)).obtenerPerfil("testuser");
+        verify(perfilService, never()).obtenerVersionPerfil(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId}?fields=... - Solo los campos pedidos")
+    void testObtenerPerfil_Campos() throws Exception {
+        // Given
+        LocalDateTime actual = LocalDateTime.of(2025, 3, 1, 11, 0);
+        List<CampoPerfil> campos = List.of(CampoPerfil.APODO, CampoPerfil.PAIS_RESIDENCIA);
+        PerfilVersion perfilVersion = version("testuser", 5L, actual);
+        when(perfilService.escribirPerfil(eq("testuser"), eq(campos), any(JsonGenerator.class)))
+                .thenAnswer(invocation -> {
+                    JsonGenerator generador = invocation.getArgument(2);
+                    generador.writeStartObject();
+                    generador.writeStringField("apodo", "Test User");
+                    generador.writeStringField("paisResidencia", "Colombia");
+                    generador.writeEndObject();
+                    return perfilVersion;
+                });
+
+        // When & Then: el orden pedido no importa, la respuesta sigue el orden del DTO
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser").param("fields", "paisResidencia, apodo"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.apodo").value("Test User"))
+                .andExpect(jsonPath("$.biografia").doesNotExist())
+                .andExpect(header().string("ETag", etag(5L)))
+                .andExpect(header().exists("Last-Modified"));
+
+        verify(perfilService, never()).obtenerPerfil(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/{usuarioId}?fields=... - Campo desconocido responde 400 sin consultar")
+    void testObtenerPerfil_CampoDesconocido() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/{usuarioId}", "testuser").param("fields", "apodo,password"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(perfilService);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles?ids=...&fields=... - Consulta por ids con campos")
+    void testObtenerPerfilesPorIds_Campos() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            JsonGenerator generador = invocation.getArgument(2);
+            generador.writeStartArray();
+            generador.writeStartObject();
+            generador.writeStringField("usuarioId", "user1");
+            generador.writeBooleanField("encontrado", true);
+            generador.writeObjectFieldStart("perfil");
+            generador.writeStringField("apodo", "User 1");
+            generador.writeEndObject();
+            generador.writeEndObject();
+            generador.writeEndArray();
+            return null;
+        }).when(perfilService).escribirPerfiles(eq(List.of("user1")), eq(List.of(CampoPerfil.APODO)), any(JsonGenerator.class));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles").param("ids", "user1").param("fields", "apodo"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].perfil.apodo").value("User 1"));
+
+        verify(perfilService, never()).obtenerPerfiles(any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos - view y fields no se pueden combinar")
+    void testObtenerPerfilesPublicos_VistaYCampos() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/publicos").param("view", "summary").param("fields", "apodo"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(perfilService);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos - Límite no numérico responde 400")
+    void testObtenerPerfilesPublicos_LimiteNoNumerico() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/publicos").param("limite", "abc"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Valor inválido para el parámetro limite: abc"));
+
+        verifyNoInteractions(perfilService);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos - If-None-Match vigente responde 304")
+    void testObtenerPerfilesPublicos_NoModificado() throws Exception {
+        // Given
+        LocalDateTime version = LocalDateTime.of(2025, 3, 1, 10, 0);
+        simularPaginaPublica(null, 50, null,
+                PerfilResponseDTO.builder().usuarioId("user1").updatedAt(version).build());
+        PerfilVersion perfilVersion = version("user1", version);
+        when(perfilService.obtenerVersionesPublicas(null, 50, null, null)).thenReturn(List.of(perfilVersion));
+
+        // When
+        String etag = mockMvc.perform(get("/api/v1/perfiles/publicos"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Then
+        mockMvc.perform(get("/api/v1/perfiles/publicos").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+        verify(perfilService, times(1)).escribirPerfilesPublicos(isNull(), eq(50), isNull(), isNull(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos - Una página grande se comprime con su propio ETag")
+    void testObtenerPerfilesPublicos_Gzip() throws Exception {
+        // Given: 30 perfiles con biografía superan el umbral de compresión
+        LocalDateTime version = LocalDateTime.of(2025, 3, 1, 10, 0);
+        PerfilResponseDTO[] perfiles = new PerfilResponseDTO[30];
+        for (int i = 0; i < perfiles.length; i++) {
+            perfiles[i] = PerfilResponseDTO.builder()
+                    .usuarioId("user" + i)
+                    .biografia("Biografia de prueba. ".repeat(10))
+                    .informacionContactoPublica(true)
+                    .updatedAt(version)
+                    .build();
+        }
+        simularPaginaPublica(null, 50, null, perfiles);
+        List<PerfilVersion> versiones = Arrays.stream(perfiles)
+                .map(perfil -> version(perfil.getUsuarioId(), perfil.getUpdatedAt()))
+                .toList();
+        when(perfilService.obtenerVersionesPublicas(null, 50, null, null)).thenReturn(versiones);
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/perfiles/publicos")
+                        .header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andExpect(header().string("ETag", endsWith("-gzip\"")))
+                .andReturn();
+        String etagGzip = result.getResponse().getHeader("ETag");
+        String etag = mockMvc.perform(get("/api/v1/perfiles/publicos"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Then: el cuerpo es la página completa y cada variante valida con su ETag
+        byte[] cuerpo;
+        try (GZIPInputStream gzip = new GZIPInputStream(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            cuerpo = gzip.readAllBytes();
+        }
+        assertEquals(30, objectMapper.readTree(cuerpo).size());
+        assertNotEquals(etag, etagGzip);
+        mockMvc.perform(get("/api/v1/perfiles/publicos")
+                        .header("Accept-Encoding", "gzip")
+                        .header("If-None-Match", etagGzip))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etagGzip))
+                .andExpect(header().string("Vary", "Accept, Accept-Encoding"));
+        mockMvc.perform(get("/api/v1/perfiles/publicos").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+    }
+
     @Test
     @DisplayName("GET /api/v1/perfiles/publicos - Obtener perfiles públicos")
     void testObtenerPerfilesPublicos() throws Exception {
@@ -150,8 +798,7 @@ class PerfilControllerIntegrationTest {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        List<PerfilResponseDTO> perfiles = Arrays.asList(perfil1, perfil2);
-        when(perfilService.obtenerPerfilesPublicos()).thenReturn(perfiles);
+        simularPaginaPublica(null, 50, null, perfil1, perfil2);
 
         // When & Then
         mockMvc.perform(get("/api/v1/perfiles/publicos"))
@@ -159,9 +806,85 @@ class PerfilControllerIntegrationTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$", hasSize(2)))
                 .andExpect(jsonPath("$[0].usuarioId").value("user1"))
-                .andExpect(jsonPath("$[1].usuarioId").value("user2"));
+                .andExpect(jsonPath("$[1].usuarioId").value("user2"))
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().doesNotExist("X-Siguiente-Cursor"));
+
+        verify(perfilService, never()).obtenerPerfilesPublicos(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos - Accept Smile escribe la página en binario")
+    void testObtenerPerfilesPublicos_Smile() throws Exception {
+        // Given
+        simularPaginaPublica(null, 50, null,
+                PerfilResponseDTO.builder().usuarioId("user1").informacionContactoPublica(true).build(),
+                PerfilResponseDTO.builder().usuarioId("user2").informacionContactoPublica(true).build());
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/perfiles/publicos")
+                        .accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string("ETag", endsWith("-smile\"")))
+                .andReturn();
 
-        verify(perfilService).obtenerPerfilesPublicos();
+        // Then
+        JsonNode perfiles = objectMapper.copyWith(new SmileFactory())
+                .readTree(result.getResponse().getContentAsByteArray());
+        assertEquals(2, perfiles.size());
+        assertEquals("user2", perfiles.get(1).get("usuarioId").asText());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos - Página llena devuelve el cursor siguiente")
+    void testObtenerPerfilesPublicos_SiguienteCursor() throws Exception {
+        // Given
+        simularPaginaPublica("user0", 2, "Colombia",
+                PerfilResponseDTO.builder().usuarioId("user1").informacionContactoPublica(true).build(),
+                PerfilResponseDTO.builder().usuarioId("user2").informacionContactoPublica(true).build());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/publicos")
+                        .param("despuesDe", "user0")
+                        .param("limite", "2")
+                        .param("paisResidencia", "Colombia"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().string("X-Siguiente-Cursor", "user2"));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos/exportar - Exportar perfiles públicos como NDJSON")
+    void testExportarPerfilesPublicos() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            JsonGenerator generador = invocation.getArgument(1);
+            for (String usuarioId : List.of("user1", "user2")) {
+                objectMapper.writeValue(generador,
+                        PerfilResponseDTO.builder().usuarioId(usuarioId).informacionContactoPublica(true).build());
+                generador.writeRaw('\n');
+            }
+            return 2L;
+        }).when(perfilService).exportarPerfilesPublicos(eq(VistaPerfil.FULL.getCampos()), any(JsonGenerator.class));
+
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/perfiles/publicos/exportar"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        String cuerpo = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        String[] lineas = cuerpo.split("\n");
+        assertEquals(2, lineas.length);
+        assertEquals("user1",
+                objectMapper.readValue(lineas[0], PerfilResponseDTO.class).getUsuarioId());
+        assertEquals("user2",
+                objectMapper.readValue(lineas[1], PerfilResponseDTO.class).getUsuarioId());
+        assertTrue(cuerpo.endsWith("\n"));
     }
 
     @Test
@@ -235,7 +958,7 @@ class PerfilControllerIntegrationTest {
     @DisplayName("GET /api/v1/perfiles/publicos - Retornar lista vacía cuando no hay perfiles públicos")
     void testObtenerPerfilesPublicos_Empty() throws Exception {
         // Given
-        when(perfilService.obtenerPerfilesPublicos()).thenReturn(Arrays.asList());
+        simularPaginaPublica(null, 50, null);
 
         // When & Then
         mockMvc.perform(get("/api/v1/perfiles/publicos"))
@@ -243,7 +966,89 @@ class PerfilControllerIntegrationTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$", hasSize(0)));
 
-        verify(perfilService).obtenerPerfilesPublicos();
+        verify(perfilService).escribirPerfilesPublicos(isNull(), eq(50), isNull(), isNull(), any(), any());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos?view=summary - Pide solo los campos del resumen")
+    void testObtenerPerfilesPublicos_VistaResumen() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/publicos").param("view", "summary"))
+                .andExpect(status().isOk());
+
+        verify(perfilService).escribirPerfilesPublicos(isNull(), eq(50), isNull(), isNull(),
+                eq(VistaPerfil.SUMMARY.getCampos()), any(JsonGenerator.class));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos?view=... - Vista desconocida responde 400")
+    void testObtenerPerfilesPublicos_VistaInvalida() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/publicos").param("view", "compacta"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(perfilService);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos/buscar - Página llena incluye el cursor de la siguiente")
+    void testBuscarPerfilesPublicos() throws Exception {
+        // Given
+        List<CursorBusqueda> posiciones = List.of(new CursorBusqueda(0.6f, "user1"), new CursorBusqueda(0.2f, "user2"));
+        when(perfilService.buscarPerfilesPublicos(eq("montaña"), isNull(), eq(2), eq(VistaPerfil.SUMMARY.getCampos()),
+                any(JsonGenerator.class)))
+                .thenAnswer(invocation -> {
+                    JsonGenerator generador = invocation.getArgument(4);
+                    generador.writeStartArray();
+                    for (CursorBusqueda posicion : posiciones) {
+                        generador.writeStartObject();
+                        generador.writeStringField("usuarioId", posicion.usuarioId());
+                        generador.writeEndObject();
+                    }
+                    generador.writeEndArray();
+                    return posiciones;
+                });
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/publicos/buscar")
+                        .param("q", "montaña")
+                        .param("limite", "2")
+                        .param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].usuarioId").value("user1"))
+                .andExpect(header().string("X-Siguiente-Cursor", posiciones.get(1).codificar()));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos/buscar - Sin texto responde 400")
+    void testBuscarPerfilesPublicos_SinTexto() throws Exception {
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/publicos/buscar"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(perfilService);
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos/facetas - Conteos por país y organización")
+    void testObtenerFacetasPublicas() throws Exception {
+        // Given
+        Map<String, Long> paises = new LinkedHashMap<>();
+        paises.put("Colombia", 5L);
+        paises.put("Chile", 2L);
+        when(perfilService.obtenerFacetasPublicas()).thenReturn(PerfilFacetasDTO.builder()
+                .paisResidencia(paises)
+                .organizacion(Map.of("Uniquindio", 3L))
+                .build());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/perfiles/publicos/facetas"))
+                .andExpect(status().isOk())
+                .andExpect(content().json(
+                        "{\"paisResidencia\":{\"Colombia\":5,\"Chile\":2},\"organizacion\":{\"Uniquindio\":3}}", true));
+
+        verify(perfilService).obtenerFacetasPublicas();
     }
 
     @Test
@@ -270,5 +1075,57 @@ class PerfilControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
-}
 
+    // Simula el camino sin entidades: el servicio escribe la página en el generador que recibe
+    private void simularPaginaPublica(String despuesDe, int limite, String paisResidencia,
+                                      PerfilResponseDTO... perfiles) throws IOException {
+        List<PerfilVersion> versiones = Arrays.stream(perfiles)
+                .map(perfil -> version(perfil.getUsuarioId(), perfil.getUpdatedAt()))
+                .toList();
+        when(perfilService.escribirPerfilesPublicos(eq(despuesDe), eq(limite), eq(paisResidencia), isNull(),
+                eq(VistaPerfil.FULL.getCampos()), any(JsonGenerator.class)))
+                .thenAnswer(invocation -> {
+                    objectMapper.writeValue(invocation.getArgument(5, JsonGenerator.class), Arrays.asList(perfiles));
+                    return versiones;
+                });
+    }
+
+    // Como la sentencia condicional del repositorio: compara versión y fecha de creación y escribe en un solo paso.
+    // Cada llamada espera en lecturas a que lleguen las demás antes de comparar
+    private void simularActualizacionCondicional(AtomicReference<VersionEsperada> vigente, CountDownLatch lecturas) {
+        when(perfilService.actualizarPerfil(eq("testuser"), any(PerfilRequestDTO.class), any()))
+                .thenAnswer(invocation -> {
+                    Collection<VersionEsperada> esperadas = invocation.getArgument(2);
+                    lecturas.countDown();
+                    assertTrue(lecturas.await(10, TimeUnit.SECONDS));
+                    VersionEsperada actual = vigente.get();
+                    VersionEsperada nueva = new VersionEsperada(actual.version() + 1, actual.createdAt());
+                    if (!esperadas.contains(actual) || !vigente.compareAndSet(actual, nueva)) {
+                        throw new PerfilVersionMismatchException("El perfil testuser cambió");
+                    }
+                    return PerfilResponseDTO.builder()
+                            .usuarioId("testuser")
+                            .apodo(invocation.getArgument(1, PerfilRequestDTO.class).getApodo())
+                            .createdAt(nueva.createdAt())
+                            .version(nueva.version())
+                            .build();
+                });
+    }
+
+    private static PerfilVersion version(String usuarioId, LocalDateTime updatedAt) {
+        return version(usuarioId, null, updatedAt);
+    }
+
+    private static PerfilVersion version(String usuarioId, Long numero, LocalDateTime updatedAt) {
+        PerfilVersion version = mock(PerfilVersion.class);
+        lenient().when(version.getUsuarioId()).thenReturn(usuarioId);
+        lenient().when(version.getCreatedAt()).thenReturn(CREADO);
+        lenient().when(version.getVersion()).thenReturn(numero);
+        lenient().when(version.getUpdatedAt()).thenReturn(updatedAt);
+        return version;
+    }
+
+    private static String etag(long version) {
+        return PerfilEtags.etag(version, CREADO);
+    }
+}
@@ -1,7 +1,7 @@
 package com.uniquindio.archmicroserv.gestion_perfil.controller;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -10,8 +10,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -26,11 +28,15 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.exceptions.ParametroInvalidoException;
 import com.uniquindio.archmicroserv.gestion_perfil.exceptions.PerfilNotFoundException;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilRespuestasCache;
 import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilService;
 
 @ExtendWith(MockitoExtension.class)
@@ -45,7 +51,13 @@ class PerfilControllerTest {
     @InjectMocks
     private PerfilController perfilController;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Spy
+    private PerfilRespuestasCache respuestasCache =
+            new PerfilRespuestasCache(DataSize.ofMegabytes(1), Duration.ofMinutes(1), DataSize.ofKilobytes(2));
+
+    // El controlador serializa el perfil con este ObjectMapper: necesita el módulo de fechas, como el de Spring
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 
     private PerfilRequestDTO perfilRequestDTO;
     private PerfilResponseDTO perfilResponseDTO;
@@ -126,15 +138,24 @@ class PerfilControllerTest {
     @Test
     @DisplayName("GET /api/v1/perfiles/publicos - Listar perfiles públicos exitosamente")
     void testObtenerPerfilesPublicosExitoso() throws Exception {
-        List<PerfilResponseDTO> perfiles = Arrays.asList(perfilResponseDTO);
-        when(perfilService.obtenerPerfilesPublicos()).thenReturn(perfiles);
+        when(perfilService.escribirPerfilesPublicos(isNull(), eq(50), isNull(), isNull(), any(), any(JsonGenerator.class)))
+                .thenAnswer(invocation -> {
+                    JsonGenerator generador = invocation.getArgument(5);
+                    generador.writeStartArray();
+                    generador.writeStartObject();
+                    generador.writeStringField("usuarioId", perfilResponseDTO.getUsuarioId());
+                    generador.writeBooleanField("informacionContactoPublica", perfilResponseDTO.getInformacionContactoPublica());
+                    generador.writeEndObject();
+                    generador.writeEndArray();
+                    return List.of();
+                });
 
         mockMvc.perform(get("/api/v1/perfiles/publicos"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0].usuarioId").value("testuser"))
                 .andExpect(jsonPath("$[0].informacionContactoPublica").value(true));
 
-        verify(perfilService, times(1)).obtenerPerfilesPublicos();
+        verify(perfilService, times(1)).escribirPerfilesPublicos(isNull(), eq(50), isNull(), isNull(), any(), any(JsonGenerator.class));
     }
 
     @Test
@@ -163,6 +184,26 @@ class PerfilControllerTest {
         verify(perfilService, times(1)).eliminarPerfil("testuser");
     }
 
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos - Límite inválido responde 400")
+    void testObtenerPerfilesPublicosLimiteInvalido() throws Exception {
+        when(perfilService.escribirPerfilesPublicos(isNull(), eq(500), isNull(), isNull(), any(), any(JsonGenerator.class)))
+                .thenThrow(new ParametroInvalidoException("El límite debe estar entre 1 y 200"));
+
+        mockMvc.perform(get("/api/v1/perfiles/publicos").param("limite", "500"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/perfiles/publicos - Una IllegalArgumentException interna no es un error del cliente")
+    void testObtenerPerfilesPublicosErrorInterno() throws Exception {
+        when(perfilService.escribirPerfilesPublicos(isNull(), eq(50), isNull(), isNull(), any(), any(JsonGenerator.class)))
+                .thenThrow(new IllegalArgumentException("Error de programación"));
+
+        mockMvc.perform(get("/api/v1/perfiles/publicos"))
+                .andExpect(status().isInternalServerError());
+    }
+
     @Test
     @DisplayName("GET /api/v1/perfiles/{usuarioId} - Perfil no encontrado")
     void testObtenerPerfilNoEncontrado() throws Exception {
@@ -0,0 +1,205 @@
+package com.uniquindio.archmicroserv.gestion_perfil.messaging;
+
+import com.rabbitmq.client.Channel;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests unitarios para PerfilEventListener - Consumo por lotes")
+class PerfilEventListenerTest {
+
+    private final Jackson2JsonMessageConverter messageConverter = new Jackson2JsonMessageConverter();
+
+    @Mock
+    private PerfilService perfilService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private Channel channel;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PerfilEventListener listener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        listener = new PerfilEventListener(perfilService, messageConverter, transactionTemplate, meterRegistry);
+        // La transacción simulada ejecuta el callback y propaga sus excepciones
+        lenient().doAnswer(invocation -> ((TransactionCallback<Object>) invocation.getArgument(0))
+                .doInTransaction(mock(TransactionStatus.class)))
+                .when(transactionTemplate).execute(any());
+    }
+
+    @Test
+    @DisplayName("Lote correcto - Una transacción, un insert con todos los registros y ack de cada mensaje")
+    void testLoteCorrecto() throws Exception {
+        listener.handlePerfilEvents(List.of(
+                mensaje(1, "REGISTRO_USUARIO", "user1"),
+                mensaje(2, "PERFIL_ACTUALIZADO", "user2"),
+                mensaje(3, "REGISTRO_USUARIO", "user2"),
+                mensaje(4, "REGISTRO_USUARIO", "user3")), channel);
+
+        // Agrupados por usuario en orden de llegada
+        verify(transactionTemplate, times(1)).execute(any());
+        verify(perfilService).provisionarPerfilesPorDefecto(List.of("user1", "user2", "user3"));
+        for (long tag = 1; tag <= 4; tag++) {
+            verify(channel).basicAck(tag, false);
+        }
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Lote fallido - Cada usuario se reintenta por separado y solo se rechaza el que falla")
+    void testLoteFallidoReintentoPorUsuario() throws Exception {
+        when(perfilService.provisionarPerfilesPorDefecto(List.of("user1", "user2")))
+                .thenThrow(new DataIntegrityViolationException("lote"));
+        when(perfilService.provisionarPerfilesPorDefecto(List.of("user1"))).thenReturn(1);
+        when(perfilService.provisionarPerfilesPorDefecto(List.of("user2")))
+                .thenThrow(new DataIntegrityViolationException("user2"));
+
+        listener.handlePerfilEvents(List.of(
+                mensaje(1, "REGISTRO_USUARIO", "user1"),
+                mensaje(2, "REGISTRO_USUARIO", "user2"),
+                mensaje(3, "PERFIL_ACTUALIZADO", "user2")), channel);
+
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(perfilService).provisionarPerfilesPorDefecto(List.of("user1"));
+        verify(channel).basicAck(1, false);
+        verify(channel, never()).basicNack(eq(1L), anyBoolean(), anyBoolean());
+        // Error permanente: a la DLQ sin reencolar, junto con el resto de mensajes del usuario
+        verify(channel).basicNack(2, false, false);
+        verify(channel).basicNack(3, false, false);
+        verify(channel, never()).basicAck(2, false);
+    }
+
+    @Test
+    @DisplayName("Error transitorio - Se reencola en la primera entrega y va a la DLQ en la reentrega")
+    void testErrorTransitorio() throws Exception {
+        when(perfilService.provisionarPerfilesPorDefecto(any())).thenThrow(new QueryTimeoutException("timeout"));
+
+        listener.handlePerfilEvents(List.of(
+                mensaje(1, "REGISTRO_USUARIO", "user1"),
+                reentregado(mensaje(2, "REGISTRO_USUARIO", "user2"))), channel);
+
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicNack(2, false, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("Mensajes inválidos - Ilegible a la DLQ, sin usuario se confirma y descarta")
+    void testMensajesInvalidos() throws Exception {
+        MessageProperties propiedades = new MessageProperties();
+        propiedades.setDeliveryTag(1);
+        propiedades.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        Message ilegible = new Message("{no es json".getBytes(StandardCharsets.UTF_8), propiedades);
+
+        listener.handlePerfilEvents(List.of(
+                ilegible,
+                mensaje(2, "REGISTRO_USUARIO", ""),
+                mensaje(3, "REGISTRO_USUARIO", "user3")), channel);
+
+        verify(channel).basicNack(1, false, false);
+        verify(channel).basicAck(2, false);
+        verify(channel).basicAck(3, false);
+        verify(perfilService).provisionarPerfilesPorDefecto(List.of("user3"));
+    }
+
+    @Test
+    @DisplayName("Lote sin eventos válidos - No abre transacción")
+    void testLoteSinEventos() throws Exception {
+        listener.handlePerfilEvents(List.of(mensaje(1, "REGISTRO_USUARIO", "")), channel);
+
+        verify(channel).basicAck(1, false);
+        verifyNoInteractions(transactionTemplate, perfilService);
+    }
+
+    @Test
+    @DisplayName("Métricas - Una muestra por sentencia de registro, usuarios por sentencia y eventos por tipo")
+    void testMetricas() throws Exception {
+        listener.handlePerfilEvents(List.of(
+                mensaje(1, "REGISTRO_USUARIO", "user1"),
+                mensaje(2, "REGISTRO_USUARIO", "user2"),
+                mensaje(3, "REGISTRO_USUARIO", "user3"),
+                mensaje(4, "PERFIL_ACTUALIZADO", "user1"),
+                mensaje(5, "OTRO_TIPO", "user2")), channel);
+        listener.handlePerfilEvent(new HashMap<>(Map.of("tipoAccion", "REGISTRO_USUARIO",
+                "payload", Map.of("usuario", "user4"))));
+
+        // Dos sentencias (el lote y el mensaje individual), no una muestra por usuario
+        assertEquals(2, meterRegistry.get("perfil.listener.registros").timer().count());
+        DistributionSummary usuarios = meterRegistry.get("perfil.listener.registros.usuarios").summary();
+        assertEquals(2, usuarios.count());
+        assertEquals(4, usuarios.totalAmount());
+        assertEquals(3, usuarios.max());
+        assertEquals(4, meterRegistry.get("perfil.listener.eventos").tag("tipoAccion", "REGISTRO_USUARIO").counter().count());
+        assertEquals(1, meterRegistry.get("perfil.listener.eventos").tag("tipoAccion", "PERFIL_ACTUALIZADO").counter().count());
+        assertEquals(1, meterRegistry.get("perfil.listener.eventos").tag("tipoAccion", "DESCONOCIDO").counter().count());
+        assertEquals(1, meterRegistry.get("perfil.listener.lotes").timer().count());
+    }
+
+    @Test
+    @DisplayName("Métricas - Solo cuentan los eventos confirmados, no el lote revertido ni el usuario rechazado")
+    void testMetricasTrasCommit() throws Exception {
+        when(perfilService.provisionarPerfilesPorDefecto(List.of("user1", "user2")))
+                .thenThrow(new DataIntegrityViolationException("lote"));
+        when(perfilService.provisionarPerfilesPorDefecto(List.of("user1"))).thenReturn(1);
+        when(perfilService.provisionarPerfilesPorDefecto(List.of("user2")))
+                .thenThrow(new DataIntegrityViolationException("user2"));
+
+        listener.handlePerfilEvents(List.of(
+                mensaje(1, "REGISTRO_USUARIO", "user1"),
+                mensaje(2, "REGISTRO_USUARIO", "user2"),
+                mensaje(3, "PERFIL_ACTUALIZADO", "user2")), channel);
+
+        // Tres sentencias ejecutadas, una confirmada
+        assertEquals(1, meterRegistry.get("perfil.listener.eventos").tag("tipoAccion", "REGISTRO_USUARIO").counter().count());
+        assertNull(meterRegistry.find("perfil.listener.eventos").tag("tipoAccion", "PERFIL_ACTUALIZADO").counter());
+        assertEquals(1, meterRegistry.get("perfil.listener.registros").timer().count());
+        assertEquals(1, meterRegistry.get("perfil.listener.registros.usuarios").summary().totalAmount());
+    }
+
+    private Message mensaje(long deliveryTag, String tipoAccion, String usuario) {
+        MessageProperties propiedades = new MessageProperties();
+        propiedades.setDeliveryTag(deliveryTag);
+        // Mapas mutables: el converter escribe su clase en __TypeId__ y la instancia al leer
+        Map<String, Object> evento = new HashMap<>();
+        evento.put("tipoAccion", tipoAccion);
+        evento.put("payload", new HashMap<>(Map.of("usuario", usuario)));
+        return messageConverter.toMessage(evento, propiedades);
+    }
+
+    private static Message reentregado(Message mensaje) {
+        mensaje.getMessageProperties().setRedelivered(true);
+        return mensaje;
+    }
+}
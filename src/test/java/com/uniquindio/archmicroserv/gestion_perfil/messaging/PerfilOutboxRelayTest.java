@@ -0,0 +1,145 @@
+package com.uniquindio.archmicroserv.gestion_perfil.messaging;
+
+import com.uniquindio.archmicroserv.gestion_perfil.config.RabbitMQConfig;
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilOutbox;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests unitarios para PerfilOutboxRelay")
+class PerfilOutboxRelayTest {
+
+    @Mock
+    private PerfilOutboxRepository outboxRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private RabbitOperations operaciones;
+
+    private PerfilOutboxRelay relay;
+
+    private RabbitTemplate.ReturnsCallback returnsCallback;
+
+    private final PerfilOutbox creado = evento(1L, PerfilOutbox.TipoEvento.PERFIL_CREADO);
+    private final PerfilOutbox eliminado = evento(2L, PerfilOutbox.TipoEvento.PERFIL_ELIMINADO);
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        relay = new PerfilOutboxRelay(outboxRepository, rabbitTemplate, transactionTemplate, 10, 1000, 60000);
+        ArgumentCaptor<RabbitTemplate.ReturnsCallback> callback =
+                ArgumentCaptor.forClass(RabbitTemplate.ReturnsCallback.class);
+        verify(rabbitTemplate).setReturnsCallback(callback.capture());
+        returnsCallback = callback.getValue();
+
+        // La transacción y el canal simulados ejecutan el callback y propagan sus excepciones
+        lenient().when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(mock(TransactionStatus.class)));
+        lenient().doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        lenient().when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                ((RabbitOperations.OperationsCallback<?>) invocation.getArgument(0)).doInRabbit(operaciones));
+    }
+
+    @Test
+    @DisplayName("Publicar pendientes - El lote se reclama antes de publicarlo y se borra con la confirmación del broker")
+    void testPublicarPendientesConfirmados() {
+        when(outboxRepository.reclamarPendientes(10, 60000)).thenReturn(List.of(creado, eliminado));
+
+        relay.publicarPendientes();
+
+        verify(operaciones).send(eq(RabbitMQConfig.PERFILES_EVENTOS_EXCHANGE), eq("perfil.creado"), any(Message.class));
+        verify(operaciones).send(eq(RabbitMQConfig.PERFILES_EVENTOS_EXCHANGE), eq("perfil.eliminado"), any(Message.class));
+        verify(operaciones).waitForConfirmsOrDie(1000);
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L, 2L));
+        verify(outboxRepository, never()).liberar(any());
+        // El reclamo (con su bloqueo) termina antes de usar el broker: dos transacciones cortas alrededor
+        InOrder orden = inOrder(outboxRepository, transactionTemplate, rabbitTemplate);
+        orden.verify(outboxRepository).bloquearReclamos();
+        orden.verify(outboxRepository).reclamarPendientes(10, 60000);
+        orden.verify(rabbitTemplate).invoke(any());
+        orden.verify(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    @DisplayName("Publicar pendientes - Sin confirmación no se borra nada y el reclamo se libera")
+    void testPublicarPendientesSinConfirmacion() {
+        when(outboxRepository.reclamarPendientes(10, 60000)).thenReturn(List.of(creado, eliminado));
+        doThrow(new AmqpTimeoutException("timeout")).when(operaciones).waitForConfirmsOrDie(1000);
+
+        // La excepción revierte la transacción y el relay la registra sin propagarla
+        assertDoesNotThrow(() -> relay.publicarPendientes());
+
+        verify(outboxRepository, never()).deleteAllByIdInBatch(any());
+        verify(outboxRepository).liberar(List.of(1L, 2L));
+    }
+
+    @Test
+    @DisplayName("Publicar pendientes - Un evento devuelto por falta de ruta se conserva en el outbox")
+    void testPublicarPendientesDevuelto() {
+        when(outboxRepository.reclamarPendientes(10, 60000)).thenReturn(List.of(creado, eliminado));
+        // El broker no encuentra cola para perfil.eliminado y devuelve el mensaje antes de confirmarlo
+        doAnswer(invocation -> {
+            String routingKey = invocation.getArgument(1);
+            if (routingKey.equals("perfil.eliminado")) {
+                returnsCallback.returnedMessage(new ReturnedMessage(invocation.getArgument(2), 312, "NO_ROUTE",
+                        RabbitMQConfig.PERFILES_EVENTOS_EXCHANGE, routingKey));
+            }
+            return null;
+        }).when(operaciones).send(eq(RabbitMQConfig.PERFILES_EVENTOS_EXCHANGE), anyString(), any(Message.class));
+
+        relay.publicarPendientes();
+
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(1L));
+        verify(outboxRepository).liberar(List.of(2L));
+    }
+
+    @Test
+    @DisplayName("Publicar pendientes - Sin eventos no se usa el broker")
+    void testPublicarPendientesVacio() {
+        when(outboxRepository.reclamarPendientes(10, 60000)).thenReturn(List.of());
+
+        relay.publicarPendientes();
+
+        verify(rabbitTemplate, never()).invoke(any());
+        verify(outboxRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    private static PerfilOutbox evento(Long id, PerfilOutbox.TipoEvento tipo) {
+        return PerfilOutbox.builder()
+                .id(id)
+                .usuarioId("user" + id)
+                .tipoEvento(tipo)
+                .payload("{\"usuarioId\":\"user" + id + "\"}")
+                .build();
+    }
+}
@@ -0,0 +1,197 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+import com.uniquindio.archmicroserv.gestion_perfil.service.EscriturasRecientes;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilFacetasService;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilOutboxService;
+import com.uniquindio.archmicroserv.gestion_perfil.service.PerfilService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El camino sin entidades debe producir exactamente los mismos bytes que serializar
+ * la lista de PerfilResponseDTO con el ObjectMapper de la aplicación.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({PerfilService.class, PerfilOutboxService.class, PerfilFacetasService.class, EscriturasRecientes.class,
+        PerfilJsonRepository.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@DisplayName("Tests de PerfilJsonRepository - Compatibilidad byte a byte y vistas")
+class PerfilJsonRepositoryTest {
+
+    private static final List<CampoPerfil> COMPLETA = VistaPerfil.FULL.getCampos();
+
+    @Autowired
+    private PerfilService perfilService;
+
+    @Autowired
+    private PerfilRepository perfilRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        perfilRepository.save(Perfil.builder()
+                .usuarioId("user1")
+                .urlPaginaPersonal("https://user1.example.com")
+                .apodo("Ñandú \"comillas\"")
+                .informacionContactoPublica(true)
+                .direccionCorrespondencia("Calle 123")
+                .biografia("Línea 1\nLínea 2")
+                .organizacion("Uniquindio")
+                .paisResidencia("Colombia")
+                .linkFacebook("https://facebook.com/user1")
+                .linkTwitter("https://twitter.com/user1")
+                .linkLinkedIn("https://linkedin.com/user1")
+                .linkInstagram("https://instagram.com/user1")
+                .linkGithub("https://github.com/user1")
+                .linkOtraRed("https://otra.com/user1")
+                .build());
+        // Solo los campos obligatorios: el resto debe escribirse como null
+        perfilRepository.save(Perfil.builder()
+                .usuarioId("user2")
+                .informacionContactoPublica(true)
+                .build());
+        perfilRepository.save(Perfil.builder()
+                .usuarioId("user3")
+                .apodo("Privado")
+                .informacionContactoPublica(false)
+                .build());
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    @DisplayName("Página pública - Mismos bytes que la lista de DTOs")
+    void testEscribirPerfilesPublicosCompatible() throws Exception {
+        byte[] esperado = objectMapper.writeValueAsBytes(
+                perfilService.obtenerPerfilesPublicos(null, 50, null, null));
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        List<PerfilVersion> versiones;
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            versiones = perfilService.escribirPerfilesPublicos(null, 50, null, null, COMPLETA, generador);
+        }
+
+        assertEquals(new String(esperado, StandardCharsets.UTF_8), salida.toString(StandardCharsets.UTF_8));
+        assertArrayEquals(esperado, salida.toByteArray());
+        assertEquals(List.of("user1", "user2"), versiones.stream().map(PerfilVersion::getUsuarioId).toList());
+    }
+
+    @Test
+    @DisplayName("Página pública con filtros y cursor - Mismos bytes que la lista de DTOs")
+    void testEscribirPerfilesPublicosConFiltros() throws Exception {
+        byte[] esperado = objectMapper.writeValueAsBytes(
+                perfilService.obtenerPerfilesPublicos("user0", 1, "Colombia", ""));
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            perfilService.escribirPerfilesPublicos("user0", 1, "Colombia", "", COMPLETA, generador);
+        }
+
+        assertArrayEquals(esperado, salida.toByteArray());
+    }
+
+    @Test
+    @DisplayName("Exportación - Cada línea coincide con el DTO serializado")
+    void testExportarPerfilesPublicosCompatible() throws Exception {
+        List<PerfilResponseDTO> perfiles = perfilService.obtenerPerfilesPublicos(null, 50, null, null);
+        StringBuilder esperado = new StringBuilder();
+        for (PerfilResponseDTO perfil : perfiles) {
+            esperado.append(objectMapper.writeValueAsString(perfil)).append('\n');
+        }
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        long total;
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            total = perfilService.exportarPerfilesPublicos(COMPLETA, generador);
+        }
+
+        assertEquals(2, total);
+        assertEquals(esperado.toString(), salida.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Vista resumen - Solo los campos de la tarjeta, sin biografía ni enlaces")
+    void testEscribirPerfilesPublicosResumen() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        List<PerfilVersion> versiones;
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            versiones = perfilService.escribirPerfilesPublicos(null, 50, null, null,
+                    VistaPerfil.SUMMARY.getCampos(), generador);
+        }
+
+        JsonNode perfiles = objectMapper.readTree(salida.toByteArray());
+        assertEquals(2, perfiles.size());
+        List<String> propiedades = new ArrayList<>();
+        perfiles.get(0).fieldNames().forEachRemaining(propiedades::add);
+        assertEquals(List.of("usuarioId", "apodo", "organizacion", "paisResidencia", "updatedAt"), propiedades);
+        assertEquals("Uniquindio", perfiles.get(0).get("organizacion").asText());
+        // La versión se lee aunque la vista no incluya updatedAt
+        assertNotNull(versiones.get(0).getUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("Buscar completos - Incluye la biografía (carga diferida en la entidad)")
+    void testBuscarCompletos() {
+        List<Perfil> perfiles = perfilRepository.buscarCompletos(List.of("user1", "user3", "noexiste"));
+
+        assertEquals(2, perfiles.size());
+        Perfil perfil = perfiles.stream().filter(p -> "user1".equals(p.getUsuarioId())).findFirst().orElseThrow();
+        assertEquals("Línea 1\nLínea 2", perfil.getBiografia());
+        assertFalse(perfil.isNew());
+    }
+
+    @Test
+    @DisplayName("Perfil con campos - Solo las propiedades pedidas")
+    void testEscribirPerfilConCampos() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            PerfilVersion version = perfilService.escribirPerfil("user3",
+                    CampoPerfil.desdePropiedades("apodo,informacionContactoPublica"), generador);
+            assertEquals("user3", version.getUsuarioId());
+        }
+
+        assertEquals("{\"apodo\":\"Privado\",\"informacionContactoPublica\":false}",
+                salida.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Varios perfiles con campos - Orden de la petición e ids inexistentes")
+    void testEscribirPerfilesPorIds() throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        try (JsonGenerator generador = objectMapper.getFactory().createGenerator(salida)) {
+            perfilService.escribirPerfiles(List.of("user2", "noexiste", "user1"),
+                    List.of(CampoPerfil.APODO), generador);
+        }
+
+        assertEquals("[{\"usuarioId\":\"user2\",\"encontrado\":true,\"perfil\":{\"apodo\":null}},"
+                        + "{\"usuarioId\":\"noexiste\",\"encontrado\":false,\"perfil\":null},"
+                        + "{\"usuarioId\":\"user1\",\"encontrado\":true,\"perfil\":{\"apodo\":\"Ñandú \\\"comillas\\\"\"}}]",
+                salida.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,482 @@
+package com.uniquindio.archmicroserv.gestion_perfil.repository;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilFaceta;
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilOutbox;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sentencias nativas de PerfilRepositoryCustomImpl y PerfilJsonRepository contra PostgreSQL real.
+ * Se omiten si no hay Docker disponible.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import(PerfilJsonRepository.class)
+// Sin transacción de test: cada sentencia se confirma como en producción
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DisplayName("Tests de PerfilRepository contra PostgreSQL")
+class PerfilRepositoryPostgresTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private PerfilRepository perfilRepository;
+
+    @Autowired
+    private PerfilJsonRepository perfilJsonRepository;
+
+    @Autowired
+    private PerfilFacetaRepository facetaRepository;
+
+    @Autowired
+    private PerfilOutboxRepository outboxRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        perfilRepository.deleteAllInBatch();
+        facetaRepository.deleteAllInBatch();
+        outboxRepository.deleteAllInBatch();
+    }
+
+    @Test
+    @DisplayName("Migraciones - Flyway crea el esquema que Hibernate valida, con sus índices")
+    void testMigraciones() {
+        List<String> indices = jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = 'perfiles' ORDER BY indexname", String.class);
+
+        assertTrue(indices.containsAll(List.of("idx_perfiles_busqueda", "idx_perfiles_organizacion",
+                "idx_perfiles_pais_residencia", "idx_perfiles_publicos", "idx_perfiles_updated_at")));
+        assertEquals(4, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM flyway_schema_history WHERE success AND version IN ('1', '2', '3', '4')",
+                Integer.class));
+    }
+
+    @Test
+    @DisplayName("Upsert - Crea el perfil con los valores por defecto")
+    void testUpsertCrea() {
+        PerfilUpsert resultado = perfilRepository.upsertPerfil("user1",
+                PerfilRequestDTO.builder().apodo("Apodo").build());
+
+        assertTrue(resultado.creado());
+        assertNull(resultado.anterior());
+        assertEquals("Apodo", resultado.perfil().getApodo());
+        assertFalse(resultado.perfil().getInformacionContactoPublica());
+        assertNotNull(resultado.perfil().getCreatedAt());
+        assertEquals(resultado.perfil().getCreatedAt(), resultado.perfil().getUpdatedAt());
+        assertFalse(resultado.perfil().isNew());
+    }
+
+    @Test
+    @DisplayName("Upsert - Solo actualiza los campos no nulos")
+    void testUpsertActualizacionParcial() {
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder()
+                .apodo("Apodo")
+                .biografia("Bio")
+                .informacionContactoPublica(true)
+                .build());
+
+        PerfilUpsert resultado = perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder()
+                .organizacion("Uniquindio")
+                .build());
+
+        assertFalse(resultado.creado());
+        Perfil perfil = resultado.perfil();
+        assertEquals("Apodo", perfil.getApodo());
+        assertEquals("Bio", perfil.getBiografia());
+        assertEquals("Uniquindio", perfil.getOrganizacion());
+        assertTrue(perfil.getInformacionContactoPublica());
+        assertTrue(perfil.getUpdatedAt().isAfter(perfil.getCreatedAt()));
+        assertEquals("Uniquindio", perfilRepository.findByUsuarioId("user1").orElseThrow().getOrganizacion());
+    }
+
+    @Test
+    @DisplayName("Upsert - Cambiar la visibilidad a false explícitamente")
+    void testUpsertVisibilidad() {
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder().informacionContactoPublica(true).build());
+
+        PerfilUpsert resultado = perfilRepository.upsertPerfil("user1",
+                PerfilRequestDTO.builder().informacionContactoPublica(false).build());
+
+        assertFalse(resultado.perfil().getInformacionContactoPublica());
+        // Facetas de la fila antes de la sentencia
+        assertEquals(new FacetasPerfil(true, null, null), resultado.anterior());
+    }
+
+    @Test
+    @DisplayName("Upsert - Sin cambios reales no modifica updated_at")
+    void testUpsertSinCambios() {
+        PerfilUpsert creado = perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder().apodo("Apodo").build());
+
+        PerfilUpsert resultado = perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder().apodo("Apodo").build());
+
+        assertFalse(resultado.creado());
+        assertEquals(creado.perfil().getUpdatedAt(), resultado.perfil().getUpdatedAt());
+        assertEquals(0L, resultado.perfil().getVersion());
+    }
+
+    @Test
+    @DisplayName("Actualización condicional - Con la versión vigente aplica los cambios e incrementa la versión")
+    void testActualizarSiVersion() {
+        LocalDateTime creado = perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder()
+                .apodo("Apodo").paisResidencia("Colombia").informacionContactoPublica(true).build())
+                .perfil().getCreatedAt();
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder().apodo("Otro").build());
+
+        PerfilUpsert resultado = perfilRepository.actualizarPerfilSiVersion("user1",
+                PerfilRequestDTO.builder().biografia("Bio").build(),
+                List.of(new VersionEsperada(0L, creado), new VersionEsperada(1L, creado))).orElseThrow();
+
+        assertFalse(resultado.creado());
+        assertEquals(new FacetasPerfil(true, "Colombia", null), resultado.anterior());
+        assertEquals("Otro", resultado.perfil().getApodo());
+        assertEquals("Bio", resultado.perfil().getBiografia());
+        assertEquals(2L, resultado.perfil().getVersion());
+        assertEquals(2L, perfilRepository.findVersionByUsuarioId("user1").orElseThrow().getVersion());
+    }
+
+    @Test
+    @DisplayName("Actualización condicional - Versión distinta o perfil inexistente no escribe nada")
+    void testActualizarSiVersionConflicto() {
+        LocalDateTime creado = perfilRepository.upsertPerfil("user1",
+                PerfilRequestDTO.builder().apodo("Apodo").build()).perfil().getCreatedAt();
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder().apodo("Otro").build());
+
+        assertTrue(perfilRepository.actualizarPerfilSiVersion("user1",
+                        PerfilRequestDTO.builder().apodo("Perdido").build(), List.of(new VersionEsperada(0L, creado)))
+                .isEmpty());
+        assertTrue(perfilRepository.actualizarPerfilSiVersion("noexiste",
+                PerfilRequestDTO.builder().apodo("Nuevo").build(), null).isEmpty());
+
+        Perfil perfil = perfilRepository.findByUsuarioId("user1").orElseThrow();
+        assertEquals("Otro", perfil.getApodo());
+        assertEquals(1L, perfil.getVersion());
+        assertFalse(perfilRepository.existsByUsuarioId("noexiste"));
+    }
+
+    @Test
+    @DisplayName("Actualización condicional - La versión de un perfil borrado no coincide con el recreado")
+    void testActualizarSiVersionPerfilRecreado() {
+        LocalDateTime creado = perfilRepository.upsertPerfil("user1",
+                PerfilRequestDTO.builder().apodo("Apodo").build()).perfil().getCreatedAt();
+        jdbcTemplate.update("DELETE FROM perfiles WHERE usuario_id = ?", "user1");
+        LocalDateTime recreado = perfilRepository.upsertPerfil("user1",
+                PerfilRequestDTO.builder().apodo("Otro").build()).perfil().getCreatedAt();
+
+        // Ambas filas tienen la versión 0: solo la fecha de creación las distingue
+        assertTrue(perfilRepository.actualizarPerfilSiVersion("user1",
+                        PerfilRequestDTO.builder().apodo("Perdido").build(), List.of(new VersionEsperada(0L, creado)))
+                .isEmpty());
+        PerfilUpsert resultado = perfilRepository.actualizarPerfilSiVersion("user1",
+                PerfilRequestDTO.builder().apodo("Nuevo").build(), List.of(new VersionEsperada(0L, recreado)))
+                .orElseThrow();
+
+        assertEquals("Nuevo", resultado.perfil().getApodo());
+        assertEquals(1L, resultado.perfil().getVersion());
+        assertEquals(recreado, perfilRepository.findVersionByUsuarioId("user1").orElseThrow().getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("Actualización condicional - Sin cambios reales conserva la versión")
+    void testActualizarSiVersionSinCambios() {
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder().apodo("Apodo").build());
+
+        PerfilUpsert resultado = perfilRepository.actualizarPerfilSiVersion("user1",
+                PerfilRequestDTO.builder().apodo("Apodo").build(), null).orElseThrow();
+
+        assertEquals(0L, resultado.perfil().getVersion());
+    }
+
+    @Test
+    @DisplayName("Actualización condicional - Muchos escritores sobre el mismo perfil no pierden cambios")
+    void testActualizarSiVersionConcurrente() throws Exception {
+        int escritores = 8;
+        int escriturasPorEscritor = 25;
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder().biografia("").build());
+        AtomicInteger conflictos = new AtomicInteger();
+
+        // Cada escritor lee la biografía y su versión y agrega su marca; si otro escribió entretanto, reintenta
+        ExecutorService executor = Executors.newFixedThreadPool(escritores);
+        try {
+            List<Future<?>> tareas = new ArrayList<>();
+            for (int e = 0; e < escritores; e++) {
+                int escritor = e;
+                tareas.add(executor.submit(() -> {
+                    for (int n = 0; n < escriturasPorEscritor; n++) {
+                        String marca = "[" + escritor + ":" + n + "]";
+                        while (true) {
+                            Map<String, Object> fila = jdbcTemplate.queryForMap(
+                                    "SELECT biografia, created_at, version FROM perfiles WHERE usuario_id = ?",
+                                    "user1");
+                            PerfilRequestDTO cambios = PerfilRequestDTO.builder()
+                                    .biografia(fila.get("biografia") + marca).build();
+                            VersionEsperada leida = new VersionEsperada(((Number) fila.get("version")).longValue(),
+                                    ((Timestamp) fila.get("created_at")).toLocalDateTime());
+                            if (perfilRepository.actualizarPerfilSiVersion("user1", cambios,
+                                    List.of(leida)).isPresent()) {
+                                break;
+                            }
+                            conflictos.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // La biografía es de carga diferida: se lee con JDBC fuera de una sesión
+        Map<String, Object> fila = jdbcTemplate.queryForMap(
+                "SELECT biografia, version FROM perfiles WHERE usuario_id = ?", "user1");
+        String biografia = (String) fila.get("biografia");
+        for (int e = 0; e < escritores; e++) {
+            for (int n = 0; n < escriturasPorEscritor; n++) {
+                assertTrue(biografia.contains("[" + e + ":" + n + "]"), "Falta la escritura " + e + ":" + n);
+            }
+        }
+        assertEquals((long) escritores * escriturasPorEscritor, ((Number) fila.get("version")).longValue(),
+                "Conflictos reintentados: " + conflictos.get());
+    }
+
+    @Test
+    @DisplayName("Upsert - Dos primeras escrituras simultáneas: la segunda ve las facetas de la primera")
+    void testUpsertPrimerasEscriturasConcurrentes() throws Exception {
+        CountDownLatch insertado = new CountDownLatch(1);
+        CountDownLatch confirmar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            // La primera inserta el perfil y espera sin confirmar
+            Future<PerfilUpsert> primera = executor.submit(() -> transactionTemplate.execute(status -> {
+                PerfilUpsert resultado = perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder()
+                        .informacionContactoPublica(true).paisResidencia("Colombia").build());
+                insertado.countDown();
+                try {
+                    confirmar.await(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return resultado;
+            }));
+            assertTrue(insertado.await(1, TimeUnit.MINUTES));
+
+            // La segunda empieza antes del commit: su CTE no ve la fila y su INSERT queda esperando el bloqueo
+            Future<PerfilUpsert> segunda = executor.submit(() -> perfilRepository.upsertPerfil("user1",
+                    PerfilRequestDTO.builder().organizacion("Uniquindio").build()));
+            esperarBloqueo();
+            confirmar.countDown();
+
+            assertTrue(primera.get(1, TimeUnit.MINUTES).creado());
+            PerfilUpsert resultado = segunda.get(1, TimeUnit.MINUTES);
+            assertFalse(resultado.creado());
+            assertEquals(new FacetasPerfil(true, "Colombia", null), resultado.anterior());
+            assertEquals(new FacetasPerfil(true, "Colombia", "Uniquindio"), FacetasPerfil.de(resultado.perfil()));
+            assertEquals(1L, resultado.perfil().getVersion());
+        } finally {
+            confirmar.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Perfiles por defecto - Inserta solo los que no existen")
+    void testInsertarPerfilesPorDefecto() {
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder().apodo("Apodo").build());
+
+        List<Perfil> creados = perfilRepository.insertarPerfilesPorDefecto(List.of("user1", "user2", "user3"));
+        List<Perfil> repetidos = perfilRepository.insertarPerfilesPorDefecto(List.of("user2", "user3"));
+
+        assertEquals(List.of("user2", "user3"), creados.stream().map(Perfil::getUsuarioId).sorted().toList());
+        assertFalse(creados.get(0).getInformacionContactoPublica());
+        assertTrue(repetidos.isEmpty());
+        assertEquals(3, perfilRepository.count());
+        assertEquals("Apodo", perfilRepository.findByUsuarioId("user1").orElseThrow().getApodo());
+    }
+
+    @Test
+    @DisplayName("Búsqueda - Ordena por relevancia, excluye privados y pagina por cursor")
+    void testBuscarPublicos() throws Exception {
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder()
+                .apodo("Montaña").informacionContactoPublica(true).build());
+        perfilRepository.upsertPerfil("user2", PerfilRequestDTO.builder()
+                .biografia("Me gustan las caminatas por la montaña").informacionContactoPublica(true).build());
+        perfilRepository.upsertPerfil("user3", PerfilRequestDTO.builder()
+                .organizacion("Montañas SAS").informacionContactoPublica(true).build());
+        perfilRepository.upsertPerfil("user4", PerfilRequestDTO.builder()
+                .apodo("Montaña privada").informacionContactoPublica(false).build());
+        perfilRepository.upsertPerfil("user5", PerfilRequestDTO.builder()
+                .apodo("Playa").informacionContactoPublica(true).build());
+
+        List<CursorBusqueda> primera = perfilJsonRepository.buscarPublicos("montaña", null, 2,
+                List.of(CampoPerfil.USUARIO_ID), nuevoGenerador());
+        List<CursorBusqueda> segunda = perfilJsonRepository.buscarPublicos("montaña",
+                CursorBusqueda.decodificar(primera.get(1).codificar()), 2, List.of(CampoPerfil.USUARIO_ID), nuevoGenerador());
+
+        // Peso del apodo > organización > biografía
+        assertEquals(List.of("user1", "user3"), primera.stream().map(CursorBusqueda::usuarioId).toList());
+        assertEquals(List.of("user2"), segunda.stream().map(CursorBusqueda::usuarioId).toList());
+    }
+
+    @Test
+    @DisplayName("Búsqueda - La columna generada sigue las actualizaciones del perfil")
+    void testBuscarPublicosTrasActualizar() throws Exception {
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder()
+                .apodo("Montaña").informacionContactoPublica(true).build());
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder().apodo("Playa").build());
+
+        assertTrue(perfilJsonRepository.buscarPublicos("montaña", null, 10,
+                List.of(CampoPerfil.USUARIO_ID), nuevoGenerador()).isEmpty());
+        assertEquals(1, perfilJsonRepository.buscarPublicos("playa", null, 10,
+                List.of(CampoPerfil.USUARIO_ID), nuevoGenerador()).size());
+    }
+
+    @Test
+    @DisplayName("Facetas - Suma incremental y lectura de los conteos positivos")
+    void testSumarFacetas() {
+        transactionTemplate.executeWithoutResult(status -> {
+            facetaRepository.sumar("PAIS_RESIDENCIA", "Colombia", 2);
+            facetaRepository.sumar("PAIS_RESIDENCIA", "Colombia", 1);
+            facetaRepository.sumar("PAIS_RESIDENCIA", "Chile", 1);
+            facetaRepository.sumar("ORGANIZACION", "Uniquindio", 1);
+            facetaRepository.sumar("ORGANIZACION", "Uniquindio", -1);
+        });
+
+        List<PerfilFaceta> facetas = facetaRepository.findVigentes();
+
+        assertEquals(List.of("Colombia", "Chile"), facetas.stream().map(PerfilFaceta::getValor).toList());
+        assertEquals(3, facetas.get(0).getTotal());
+    }
+
+    @Test
+    @DisplayName("Facetas - La reconciliación corrige, agrega y elimina conteos")
+    void testRecalcularFacetas() {
+        perfilRepository.upsertPerfil("user1", PerfilRequestDTO.builder()
+                .paisResidencia("Colombia").organizacion("Uniquindio").informacionContactoPublica(true).build());
+        perfilRepository.upsertPerfil("user2", PerfilRequestDTO.builder()
+                .paisResidencia("Colombia").informacionContactoPublica(true).build());
+        perfilRepository.upsertPerfil("user3", PerfilRequestDTO.builder()
+                .paisResidencia("Chile").informacionContactoPublica(false).build());
+        transactionTemplate.executeWithoutResult(status -> {
+            facetaRepository.sumar("PAIS_RESIDENCIA", "Colombia", 7);
+            facetaRepository.sumar("PAIS_RESIDENCIA", "Chile", 1);
+        });
+
+        Integer corregidas = transactionTemplate.execute(status -> {
+            assertTrue(facetaRepository.bloquearReconciliacion());
+            facetaRepository.bloquearEscrituras();
+            return facetaRepository.recalcular();
+        });
+
+        // Colombia corregida y Uniquindio agregada; Chile (solo perfiles privados) eliminada
+        assertEquals(2, corregidas);
+        List<PerfilFaceta> facetas = facetaRepository.findAll();
+        assertEquals(2, facetas.size());
+        assertEquals(2, facetaRepository.findById(
+                new PerfilFaceta.Clave(PerfilFaceta.Tipo.PAIS_RESIDENCIA, "Colombia")).orElseThrow().getTotal());
+        assertEquals(1, facetaRepository.findById(
+                new PerfilFaceta.Clave(PerfilFaceta.Tipo.ORGANIZACION, "Uniquindio")).orElseThrow().getTotal());
+    }
+
+    @Test
+    @DisplayName("Outbox - Un reclamo vigente deja fuera los demás eventos de su usuario hasta liberarse")
+    void testReclamarPendientes() {
+        PerfilOutbox primero = outboxRepository.save(eventoOutbox("user1"));
+        PerfilOutbox otroUsuario = outboxRepository.save(eventoOutbox("user2"));
+        PerfilOutbox siguiente = outboxRepository.save(eventoOutbox("user1"));
+
+        assertEquals(List.of(primero.getId()), reclamar(1));
+        // El evento siguiente de user1 no se reclama mientras el primero siga reclamado
+        assertEquals(List.of(otroUsuario.getId()), reclamar(10));
+        assertEquals(List.of(), reclamar(10));
+
+        transactionTemplate.executeWithoutResult(status -> outboxRepository.liberar(List.of(primero.getId())));
+        assertEquals(List.of(primero.getId(), siguiente.getId()), reclamar(10));
+    }
+
+    @Test
+    @DisplayName("Outbox - Un reclamo vencido se vuelve a reclamar")
+    void testReclamoVencido() {
+        PerfilOutbox evento = outboxRepository.save(eventoOutbox("user1"));
+        transactionTemplate.execute(status -> {
+            outboxRepository.bloquearReclamos();
+            return outboxRepository.reclamarPendientes(10, -1000);
+        });
+
+        assertEquals(List.of(evento.getId()), reclamar(10));
+    }
+
+    private List<Long> reclamar(int limite) {
+        return transactionTemplate.execute(status -> {
+            outboxRepository.bloquearReclamos();
+            return outboxRepository.reclamarPendientes(limite, 60000).stream()
+                    .map(PerfilOutbox::getId).sorted().toList();
+        });
+    }
+
+    private static PerfilOutbox eventoOutbox(String usuarioId) {
+        return PerfilOutbox.builder()
+                .usuarioId(usuarioId)
+                .tipoEvento(PerfilOutbox.TipoEvento.PERFIL_ACTUALIZADO)
+                .payload("{\"usuarioId\":\"" + usuarioId + "\"}")
+                .build();
+    }
+
+    private static JsonGenerator nuevoGenerador() throws Exception {
+        return new JsonFactory().createGenerator(OutputStream.nullOutputStream());
+    }
+
+    // Espera a que otra sesión quede bloqueada esperando un lock de fila o de transacción
+    private void esperarBloqueo() throws InterruptedException {
+        for (int intento = 0; intento < 500; intento++) {
+            Integer bloqueadas = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'", Integer.class);
+            if (bloqueadas != null && bloqueadas > 0) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("La segunda escritura no llegó a esperar el bloqueo");
+    }
+}
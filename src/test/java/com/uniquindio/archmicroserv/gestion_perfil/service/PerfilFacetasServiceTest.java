@@ -0,0 +1,139 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilFacetasDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilFaceta;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.FacetasPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilFacetaRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Tests unitarios para PerfilFacetasService")
+class PerfilFacetasServiceTest {
+
+    @Mock
+    private PerfilFacetaRepository facetaRepository;
+
+    @InjectMocks
+    private PerfilFacetasService facetasService;
+
+    @Test
+    @DisplayName("Perfil nuevo público - Suma uno a su país y organización")
+    void testRegistrarCambio_PerfilNuevo() {
+        facetasService.registrarCambio(null, new FacetasPerfil(true, "Colombia", "Uniquindio"));
+
+        verify(facetaRepository).sumar("PAIS_RESIDENCIA", "Colombia", 1);
+        verify(facetaRepository).sumar("ORGANIZACION", "Uniquindio", 1);
+        verifyNoMoreInteractions(facetaRepository);
+    }
+
+    @Test
+    @DisplayName("Cambio de visibilidad - Público a privado resta, privado a público suma")
+    void testRegistrarCambio_Visibilidad() {
+        facetasService.registrarCambio(new FacetasPerfil(true, "Colombia", null),
+                new FacetasPerfil(false, "Colombia", null));
+        facetasService.registrarCambio(new FacetasPerfil(false, "Perú", null),
+                new FacetasPerfil(true, "Perú", null));
+
+        verify(facetaRepository).sumar("PAIS_RESIDENCIA", "Colombia", -1);
+        verify(facetaRepository).sumar("PAIS_RESIDENCIA", "Perú", 1);
+        verifyNoMoreInteractions(facetaRepository);
+    }
+
+    @Test
+    @DisplayName("Cambio de país - Resta del anterior y suma al nuevo; la organización no cambia")
+    void testRegistrarCambio_CambioDePais() {
+        facetasService.registrarCambio(new FacetasPerfil(true, "Colombia", "Uniquindio"),
+                new FacetasPerfil(true, "Chile", "Uniquindio"));
+
+        verify(facetaRepository).sumar("PAIS_RESIDENCIA", "Chile", 1);
+        verify(facetaRepository).sumar("PAIS_RESIDENCIA", "Colombia", -1);
+        verifyNoMoreInteractions(facetaRepository);
+    }
+
+    @Test
+    @DisplayName("Sin cambios en las facetas o perfil privado - No escribe")
+    void testRegistrarCambio_SinCambios() {
+        facetasService.registrarCambio(new FacetasPerfil(true, "Colombia", "Uniquindio"),
+                new FacetasPerfil(true, "Colombia", "Uniquindio"));
+        facetasService.registrarCambio(new FacetasPerfil(false, "Colombia", null),
+                new FacetasPerfil(false, "Chile", null));
+        facetasService.registrarCambio(null, new FacetasPerfil(true, " ", null));
+
+        verifyNoInteractions(facetaRepository);
+    }
+
+    @Test
+    @DisplayName("Eliminar perfil público - Resta uno")
+    void testRegistrarCambio_Eliminado() {
+        facetasService.registrarCambio(new FacetasPerfil(true, null, "Uniquindio"), null);
+
+        verify(facetaRepository).sumar("ORGANIZACION", "Uniquindio", -1);
+        verifyNoMoreInteractions(facetaRepository);
+    }
+
+    @Test
+    @DisplayName("Lote - Un delta agregado por faceta, en orden estable")
+    void testRegistrarCambios() {
+        facetasService.registrarCambios(
+                Arrays.asList(null, null, new FacetasPerfil(true, "Colombia", null)),
+                List.of(new FacetasPerfil(true, "Colombia", null),
+                        new FacetasPerfil(true, "Chile", null),
+                        new FacetasPerfil(true, "Colombia", null)));
+
+        InOrder orden = inOrder(facetaRepository);
+        orden.verify(facetaRepository).sumar("PAIS_RESIDENCIA", "Chile", 1);
+        orden.verify(facetaRepository).sumar("PAIS_RESIDENCIA", "Colombia", 1);
+        verifyNoMoreInteractions(facetaRepository);
+    }
+
+    @Test
+    @DisplayName("Obtener facetas - Agrupa por tipo conservando el orden por total")
+    void testObtenerFacetas() {
+        when(facetaRepository.findVigentes()).thenReturn(List.of(
+                new PerfilFaceta(PerfilFaceta.Tipo.PAIS_RESIDENCIA, "Colombia", 5),
+                new PerfilFaceta(PerfilFaceta.Tipo.PAIS_RESIDENCIA, "Chile", 2),
+                new PerfilFaceta(PerfilFaceta.Tipo.ORGANIZACION, "Uniquindio", 3)));
+
+        PerfilFacetasDTO facetas = facetasService.obtenerFacetas();
+
+        assertEquals(List.of("Colombia", "Chile"), List.copyOf(facetas.getPaisResidencia().keySet()));
+        assertEquals(5L, facetas.getPaisResidencia().get("Colombia"));
+        assertEquals(3L, facetas.getOrganizacion().get("Uniquindio"));
+    }
+
+    @Test
+    @DisplayName("Reconciliar - Bloquea las escrituras y recalcula")
+    void testReconciliar() {
+        when(facetaRepository.bloquearReconciliacion()).thenReturn(true);
+        when(facetaRepository.recalcular()).thenReturn(2);
+
+        facetasService.reconciliar();
+
+        InOrder orden = inOrder(facetaRepository);
+        orden.verify(facetaRepository).bloquearEscrituras();
+        orden.verify(facetaRepository).recalcular();
+    }
+
+    @Test
+    @DisplayName("Reconciliar - Otra instancia ya reconcilia")
+    void testReconciliar_EnCurso() {
+        when(facetaRepository.bloquearReconciliacion()).thenReturn(false);
+
+        facetasService.reconciliar();
+
+        verify(facetaRepository, never()).bloquearEscrituras();
+        verify(facetaRepository, never()).recalcular();
+    }
+}
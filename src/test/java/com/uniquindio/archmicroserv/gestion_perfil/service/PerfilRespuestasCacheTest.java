@@ -0,0 +1,144 @@
+package com.uniquindio.archmicroserv.gestion_perfil.service;
+
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Tests unitarios para PerfilRespuestasCache")
+class PerfilRespuestasCacheTest {
+
+    private static final Long VERSION = 3L;
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2025, 1, 10, 8, 30);
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2025, 3, 1, 10, 0);
+
+    private PerfilRespuestasCache respuestasCache;
+
+    @BeforeEach
+    void setUp() {
+        respuestasCache = new PerfilRespuestasCache(
+                DataSize.ofKilobytes(64), Duration.ofMinutes(10), DataSize.ofKilobytes(2));
+    }
+
+    @Test
+    @DisplayName("Guardar y obtener - Cada variante se guarda con la versión del perfil")
+    void testGuardarYObtener() {
+        PerfilRespuestasCache.Respuesta json = respuesta(VERSION, 100);
+        PerfilRespuestasCache.Respuesta cbor = respuesta(VERSION, 80);
+
+        respuestasCache.guardar("user1", "JSON", json, respuestasCache.marcaLectura());
+        respuestasCache.guardar("user1", "CBOR", cbor, respuestasCache.marcaLectura());
+
+        assertSame(json, respuestasCache.obtener("user1", "JSON").orElseThrow());
+        assertSame(cbor, respuestasCache.obtener("user1", "CBOR").orElseThrow());
+        assertTrue(respuestasCache.obtener("user1", "SMILE").isEmpty());
+        PerfilVersion version = respuestasCache.version("user1").orElseThrow();
+        assertEquals("user1", version.getUsuarioId());
+        assertEquals(VERSION, version.getVersion());
+        assertEquals(CREATED_AT, version.getCreatedAt());
+        assertEquals(UPDATED_AT, version.getUpdatedAt());
+    }
+
+    @Test
+    @DisplayName("Invalidar - Elimina todas las variantes del perfil")
+    void testInvalidar() {
+        respuestasCache.guardar("user1", "JSON", respuesta(VERSION, 100), respuestasCache.marcaLectura());
+        respuestasCache.guardar("user1", "JSON+gzip", respuesta(VERSION, 60), respuestasCache.marcaLectura());
+
+        respuestasCache.invalidar("user1");
+
+        assertTrue(respuestasCache.obtener("user1", "JSON").isEmpty());
+        assertTrue(respuestasCache.obtener("user1", "JSON+gzip").isEmpty());
+        assertTrue(respuestasCache.version("user1").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Lectura iniciada antes de una invalidación - No se guarda")
+    void testLecturaAnteriorAInvalidacion() {
+        long marcaLectura = respuestasCache.marcaLectura();
+        respuestasCache.invalidar("user1");
+
+        respuestasCache.guardar("user1", "JSON", respuesta(VERSION, 100), marcaLectura);
+        assertTrue(respuestasCache.obtener("user1", "JSON").isEmpty());
+
+        // Una lectura posterior sí se guarda
+        respuestasCache.guardar("user1", "JSON", respuesta(VERSION, 100), respuestasCache.marcaLectura());
+        assertTrue(respuestasCache.obtener("user1", "JSON").isPresent());
+    }
+
+    @Test
+    @DisplayName("Versiones distintas - La más nueva reemplaza las variantes y la anterior se descarta")
+    void testVersiones() {
+        Long nueva = VERSION + 1;
+        respuestasCache.guardar("user1", "JSON", respuesta(VERSION, 100), respuestasCache.marcaLectura());
+
+        respuestasCache.guardar("user1", "CBOR", respuesta(nueva, 80), respuestasCache.marcaLectura());
+        respuestasCache.guardar("user1", "SMILE", respuesta(VERSION, 90), respuestasCache.marcaLectura());
+
+        assertTrue(respuestasCache.obtener("user1", "JSON").isEmpty());
+        assertTrue(respuestasCache.obtener("user1", "SMILE").isEmpty());
+        assertEquals(nueva, respuestasCache.obtener("user1", "CBOR").orElseThrow().version());
+    }
+
+    @Test
+    @DisplayName("Perfil recreado - La nueva encarnación reemplaza a la anterior aunque su versión sea menor")
+    void testPerfilRecreado() {
+        LocalDateTime recreado = CREATED_AT.plusDays(1);
+        respuestasCache.guardar("user1", "JSON", respuesta(VERSION, 100), respuestasCache.marcaLectura());
+
+        respuestasCache.guardar("user1", "CBOR", respuesta(0L, recreado, 80), respuestasCache.marcaLectura());
+        respuestasCache.guardar("user1", "SMILE", respuesta(VERSION, 90), respuestasCache.marcaLectura());
+
+        assertTrue(respuestasCache.obtener("user1", "JSON").isEmpty());
+        assertTrue(respuestasCache.obtener("user1", "SMILE").isEmpty());
+        PerfilVersion version = respuestasCache.version("user1").orElseThrow();
+        assertEquals(0L, version.getVersion());
+        assertEquals(recreado, version.getCreatedAt());
+    }
+
+    @Test
+    @DisplayName("Límite de memoria - Se acota por bytes, no por cantidad de perfiles")
+    void testLimiteEnBytes() {
+        // 64 perfiles de 4KB son 256KB: solo caben unos 16 en 64KB
+        IntStream.range(0, 64).forEach(i -> respuestasCache.guardar(
+                "user" + i, "JSON", respuesta(VERSION, 4 * 1024), respuestasCache.marcaLectura()));
+
+        respuestasCache.mantenimiento();
+
+        assertTrue(respuestasCache.bytes() <= DataSize.ofKilobytes(64).toBytes());
+        long enCache = IntStream.range(0, 64)
+                .filter(i -> respuestasCache.obtener("user" + i, "JSON").isPresent())
+                .count();
+        assertTrue(enCache > 0 && enCache <= 16, "Perfiles en caché: " + enCache);
+    }
+
+    @Test
+    @DisplayName("Sin versión - La respuesta no se guarda")
+    void testSinVersion() {
+        respuestasCache.guardar("user1", "JSON", respuesta(null, 100), respuestasCache.marcaLectura());
+
+        assertTrue(respuestasCache.obtener("user1", "JSON").isEmpty());
+    }
+
+    @Test
+    @DisplayName("Umbral de compresión - Igual que server.compression.min-response-size")
+    void testComprimible() {
+        assertFalse(respuestasCache.comprimible(2047));
+        assertTrue(respuestasCache.comprimible(2048));
+    }
+
+    private static PerfilRespuestasCache.Respuesta respuesta(Long version, int bytes) {
+        return respuesta(version, CREATED_AT, bytes);
+    }
+
+    private static PerfilRespuestasCache.Respuesta respuesta(Long version, LocalDateTime createdAt, int bytes) {
+        return new PerfilRespuestasCache.Respuesta(version, createdAt, UPDATED_AT, new byte[bytes], false);
+    }
+}
@@ -1,22 +1,47 @@
 package com.uniquindio.archmicroserv.gestion_perfil.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilBatchItemDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilBatchResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilConsultaItemDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilFacetasDTO;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilRequestDTO;
 import com.uniquindio.archmicroserv.gestion_perfil.dto.PerfilResponseDTO;
+import com.uniquindio.archmicroserv.gestion_perfil.exceptions.ParametroInvalidoException;
 import com.uniquindio.archmicroserv.gestion_perfil.exceptions.PerfilNotFoundException;
+import com.uniquindio.archmicroserv.gestion_perfil.exceptions.PerfilVersionMismatchException;
 import com.uniquindio.archmicroserv.gestion_perfil.model.Perfil;
+import com.uniquindio.archmicroserv.gestion_perfil.model.PerfilOutbox;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CampoPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.CursorBusqueda;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.FacetasPerfil;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilJsonRepository;
 import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilRepository;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilUpsert;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.PerfilVersion;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.VersionEsperada;
+import com.uniquindio.archmicroserv.gestion_perfil.repository.VistaPerfil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -29,6 +54,21 @@ class PerfilServiceTest {
     @Mock
     private PerfilRepository perfilRepository;
 
+    @Mock
+    private PerfilJsonRepository perfilJsonRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PerfilOutboxService outboxService;
+
+    @Mock
+    private PerfilFacetasService facetasService;
+
+    @Mock
+    private EscriturasRecientes escriturasRecientes;
+
     @InjectMocks
     private PerfilService perfilService;
 
@@ -61,8 +101,7 @@ class PerfilServiceTest {
     @DisplayName("Crear perfil nuevo - Camino feliz")
     void testCrearPerfilNuevo_Success() {
         // Given
-        when(perfilRepository.findByUsuarioId("testuser")).thenReturn(Optional.empty());
-        when(perfilRepository.save(any(Perfil.class))).thenReturn(perfil);
+        when(perfilRepository.upsertPerfil("testuser", requestDTO)).thenReturn(new PerfilUpsert(perfil, true, null));
 
         // When
         PerfilResponseDTO result = perfilService.crearOActualizarPerfil("testuser", requestDTO);
@@ -71,16 +110,20 @@ class PerfilServiceTest {
         assertNotNull(result);
         assertEquals("testuser", result.getUsuarioId());
         assertEquals("Test User", result.getApodo());
-        verify(perfilRepository).findByUsuarioId("testuser");
-        verify(perfilRepository).save(any(Perfil.class));
+        verify(perfilRepository).upsertPerfil("testuser", requestDTO);
+        verify(perfilRepository, never()).findByUsuarioId(anyString());
+        verify(perfilRepository, never()).save(any(Perfil.class));
+        verify(outboxService).registrar(eq("testuser"), eq(PerfilOutbox.TipoEvento.PERFIL_CREADO), any());
+        verify(eventPublisher).publishEvent(new PerfilModificadoEvent("testuser"));
+        verify(facetasService).registrarCambio(null, new FacetasPerfil(true, "Colombia", null));
     }
 
     @Test
     @DisplayName("Actualizar perfil existente - Camino feliz")
     void testActualizarPerfil_Success() {
         // Given
-        when(perfilRepository.findByUsuarioId("testuser")).thenReturn(Optional.of(perfil));
-        when(perfilRepository.save(any(Perfil.class))).thenReturn(perfil);
+        FacetasPerfil anterior = new FacetasPerfil(false, "Colombia", null);
+        when(perfilRepository.upsertPerfil("testuser", requestDTO)).thenReturn(new PerfilUpsert(perfil, false, anterior));
 
         // When
         PerfilResponseDTO result = perfilService.crearOActualizarPerfil("testuser", requestDTO);
@@ -88,15 +131,139 @@ class PerfilServiceTest {
         // Then
         assertNotNull(result);
         assertEquals("testuser", result.getUsuarioId());
-        verify(perfilRepository).findByUsuarioId("testuser");
-        verify(perfilRepository).save(any(Perfil.class));
+        verify(perfilRepository).upsertPerfil("testuser", requestDTO);
+        verify(outboxService).registrar(eq("testuser"), eq(PerfilOutbox.TipoEvento.PERFIL_ACTUALIZADO), any());
+        // El perfil pasó de privado a público
+        verify(facetasService).registrarCambio(anterior, new FacetasPerfil(true, "Colombia", null));
+    }
+
+    @Test
+    @DisplayName("Actualizar perfil con If-Match - La versión coincide")
+    void testActualizarPerfilSiVersion_Success() {
+        // Given
+        perfil.setVersion(8L);
+        FacetasPerfil anterior = new FacetasPerfil(true, "Colombia", null);
+        List<VersionEsperada> esperadas = List.of(new VersionEsperada(7L, perfil.getCreatedAt()));
+        when(perfilRepository.actualizarPerfilSiVersion("testuser", requestDTO, esperadas))
+                .thenReturn(Optional.of(new PerfilUpsert(perfil, false, anterior)));
+
+        // When
+        PerfilResponseDTO result = perfilService.actualizarPerfil("testuser", requestDTO, esperadas);
+
+        // Then
+        assertEquals(8L, result.getVersion());
+        verify(perfilRepository, never()).upsertPerfil(anyString(), any());
+        verify(outboxService).registrar(eq("testuser"), eq(PerfilOutbox.TipoEvento.PERFIL_ACTUALIZADO), any());
+        verify(eventPublisher).publishEvent(new PerfilModificadoEvent("testuser"));
+    }
+
+    @Test
+    @DisplayName("Actualizar perfil con If-Match - Otra escritura cambió la versión")
+    void testActualizarPerfilSiVersion_Conflicto() {
+        // Given
+        List<VersionEsperada> esperadas = List.of(new VersionEsperada(7L, perfil.getCreatedAt()));
+        when(perfilRepository.actualizarPerfilSiVersion("testuser", requestDTO, esperadas))
+                .thenReturn(Optional.empty());
+
+        // When & Then: sin efectos secundarios
+        assertThrows(PerfilVersionMismatchException.class,
+                () -> perfilService.actualizarPerfil("testuser", requestDTO, esperadas));
+        assertThrows(PerfilVersionMismatchException.class,
+                () -> perfilService.actualizarPerfil("testuser", requestDTO, List.of()));
+        verify(perfilRepository, times(1)).actualizarPerfilSiVersion(anyString(), any(), any());
+        verifyNoInteractions(outboxService, facetasService, eventPublisher);
+    }
+
+    @Test
+    @DisplayName("Crear o actualizar perfiles en lote - Una consulta, un saveAll y una relectura")
+    @SuppressWarnings("unchecked")
+    void testCrearOActualizarPerfiles() {
+        // Given
+        Map<String, PerfilRequestDTO> solicitudes = new LinkedHashMap<>();
+        solicitudes.put("testuser", PerfilRequestDTO.builder().apodo("Nuevo apodo").build());
+        solicitudes.put("nuevo", requestDTO);
+        solicitudes.put(" ", requestDTO);
+        when(perfilRepository.findAllById(any())).thenReturn(List.of(perfil));
+        when(perfilRepository.buscarCompletos(List.of("testuser", "nuevo")))
+                .thenReturn(List.of(perfil, Perfil.builder().usuarioId("nuevo").build()));
+
+        // When
+        PerfilBatchResponseDTO result = perfilService.crearOActualizarPerfiles(solicitudes);
+
+        // Then
+        assertEquals(1, result.getCreados());
+        assertEquals(1, result.getActualizados());
+        assertEquals(1, result.getRechazados());
+        assertEquals(PerfilBatchItemDTO.Estado.ACTUALIZADO, result.getResultados().get(0).getEstado());
+        assertEquals(PerfilBatchItemDTO.Estado.CREADO, result.getResultados().get(1).getEstado());
+        assertEquals(PerfilBatchItemDTO.Estado.RECHAZADO, result.getResultados().get(2).getEstado());
+        assertEquals("Nuevo apodo", perfil.getApodo());
+
+        ArgumentCaptor<List<Perfil>> guardados = ArgumentCaptor.forClass(List.class);
+        verify(perfilRepository).findAllById(argThat(ids -> ((Collection<String>) ids).size() == 2));
+        verify(perfilRepository).saveAll(guardados.capture());
+        verify(perfilRepository).flush();
+        verify(perfilRepository).buscarCompletos(List.of("testuser", "nuevo"));
+        assertEquals(2, guardados.getValue().size());
+        assertTrue(guardados.getValue().get(1).isNew());
+        // Facetas del perfil existente antes de aplicar los cambios; el nuevo no tenía
+        verify(facetasService).registrarCambios(
+                Arrays.asList(new FacetasPerfil(true, "Colombia", null), null),
+                List.of(new FacetasPerfil(true, "Colombia", null), new FacetasPerfil(true, "Colombia", null)));
+        verify(outboxService).registrar(eq("testuser"), eq(PerfilOutbox.TipoEvento.PERFIL_ACTUALIZADO), any());
+        verify(outboxService).registrar(eq("nuevo"), eq(PerfilOutbox.TipoEvento.PERFIL_CREADO), any());
+        verify(outboxService, times(2)).registrar(anyString(), any(), any());
+        verify(perfilRepository, never()).findByUsuarioId(anyString());
+        verify(perfilRepository, never()).save(any(Perfil.class));
+    }
+
+    @Test
+    @DisplayName("Provisionar perfiles por defecto - Ids únicos, ordenados y en una sola llamada")
+    @SuppressWarnings("unchecked")
+    void testProvisionarPerfilesPorDefecto() {
+        // Given
+        when(perfilRepository.insertarPerfilesPorDefecto(any())).thenReturn(List.of(
+                Perfil.builder().usuarioId("user1").informacionContactoPublica(false).build(),
+                Perfil.builder().usuarioId("user2").informacionContactoPublica(false).build()));
+
+        // When
+        int creados = perfilService.provisionarPerfilesPorDefecto(Arrays.asList("user2", "user1", "user2", "", null));
+
+        // Then
+        assertEquals(2, creados);
+        ArgumentCaptor<Collection<String>> ids = ArgumentCaptor.forClass(Collection.class);
+        verify(perfilRepository).insertarPerfilesPorDefecto(ids.capture());
+        assertEquals(List.of("user1", "user2"), new ArrayList<>(ids.getValue()));
+        // Cada perfil creado emite el mismo evento que una creación por la API
+        verify(outboxService).registrar(eq("user1"), eq(PerfilOutbox.TipoEvento.PERFIL_CREADO), any());
+        verify(outboxService).registrar(eq("user2"), eq(PerfilOutbox.TipoEvento.PERFIL_CREADO), any());
+        verify(eventPublisher, never()).publishEvent(any());
+        verifyNoInteractions(facetasService);
+    }
+
+    @Test
+    @DisplayName("Provisionar perfiles por defecto - Los que ya existían no repiten el evento")
+    void testProvisionarPerfilesPorDefecto_Existentes() {
+        // Given
+        when(perfilRepository.insertarPerfilesPorDefecto(any())).thenReturn(List.of());
+
+        // When & Then
+        assertEquals(0, perfilService.provisionarPerfilesPorDefecto(List.of("user1")));
+        verifyNoInteractions(outboxService);
+    }
+
+    @Test
+    @DisplayName("Provisionar perfiles por defecto - Sin ids no consulta la base de datos")
+    void testProvisionarPerfilesPorDefecto_SinIds() {
+        assertEquals(0, perfilService.provisionarPerfilesPorDefecto(List.of(" ")));
+        verifyNoInteractions(perfilRepository, outboxService);
     }
 
     @Test
     @DisplayName("Obtener perfil - Camino feliz")
     void testObtenerPerfil_Success() {
         // Given
-        when(perfilRepository.findByUsuarioId("testuser")).thenReturn(Optional.of(perfil));
+        when(perfilRepository.buscarCompletos(List.of("testuser"))).thenReturn(List.of(perfil));
 
         // When
         PerfilResponseDTO result = perfilService.obtenerPerfil("testuser");
@@ -105,20 +272,107 @@ class PerfilServiceTest {
         assertNotNull(result);
         assertEquals("testuser", result.getUsuarioId());
         assertEquals("Test User", result.getApodo());
-        verify(perfilRepository).findByUsuarioId("testuser");
+        verify(perfilRepository).buscarCompletos(List.of("testuser"));
+        verify(perfilRepository, never()).findByUsuarioId(anyString());
+    }
+
+    @Test
+    @DisplayName("Obtener varios perfiles - Conserva el orden e informa los faltantes")
+    void testObtenerPerfiles() {
+        // Given
+        Perfil otro = Perfil.builder().usuarioId("otro").build();
+        when(perfilRepository.buscarCompletos(any())).thenReturn(List.of(perfil, otro));
+
+        // When
+        List<PerfilConsultaItemDTO> result = perfilService.obtenerPerfiles(List.of("otro", "noexiste", "testuser"));
+
+        // Then
+        assertEquals(3, result.size());
+        assertEquals("otro", result.get(0).getUsuarioId());
+        assertTrue(result.get(0).isEncontrado());
+        assertEquals("noexiste", result.get(1).getUsuarioId());
+        assertFalse(result.get(1).isEncontrado());
+        assertNull(result.get(1).getPerfil());
+        assertEquals("Test User", result.get(2).getPerfil().getApodo());
+        verify(perfilRepository, times(1)).buscarCompletos(any());
+        verify(perfilRepository, never()).findAllById(any());
+        // Los ids con escrituras recientes se leen del primario
+        verify(escriturasRecientes).leerDelPrimarioSiRecientes(List.of("otro", "noexiste", "testuser"));
+    }
+
+    @Test
+    @DisplayName("Obtener varios perfiles - Demasiados ids")
+    void testObtenerPerfiles_DemasiadosIds() {
+        // Given
+        List<String> ids = IntStream.rangeClosed(0, PerfilService.LIMITE_MAXIMO_PAGINA)
+                .mapToObj(i -> "user" + i)
+                .toList();
+
+        // When & Then
+        assertThrows(ParametroInvalidoException.class, () -> perfilService.obtenerPerfiles(ids));
+        verifyNoInteractions(perfilRepository);
+    }
+
+    @Test
+    @DisplayName("Escribir perfil con campos - No encontrado")
+    void testEscribirPerfil_NotFound() throws Exception {
+        // Given
+        JsonGenerator generador = mock(JsonGenerator.class);
+        List<CampoPerfil> campos = List.of(CampoPerfil.APODO);
+        when(perfilJsonRepository.escribirPerfil(eq("testuser"), eq(campos), any())).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(PerfilNotFoundException.class, () -> perfilService.escribirPerfil("testuser", campos, generador));
+        verifyNoInteractions(perfilRepository);
+    }
+
+    @Test
+    @DisplayName("Escribir varios perfiles con campos - Demasiados ids")
+    void testEscribirPerfiles_DemasiadosIds() {
+        // Given
+        List<String> ids = IntStream.rangeClosed(0, PerfilService.LIMITE_MAXIMO_PAGINA)
+                .mapToObj(i -> "user" + i)
+                .toList();
+
+        // When & Then
+        assertThrows(ParametroInvalidoException.class,
+                () -> perfilService.escribirPerfiles(ids, List.of(CampoPerfil.APODO), mock(JsonGenerator.class)));
+        verifyNoInteractions(perfilJsonRepository);
+    }
+
+    @Test
+    @DisplayName("Campos pedidos - Orden del DTO, sin repetidos y rechazo de desconocidos")
+    void testCamposDesdePropiedades() {
+        assertEquals(List.of(CampoPerfil.USUARIO_ID, CampoPerfil.APODO, CampoPerfil.UPDATED_AT),
+                CampoPerfil.desdePropiedades("updatedAt, apodo,usuarioId,apodo"));
+        assertThrows(ParametroInvalidoException.class, () -> CampoPerfil.desdePropiedades("apodo,clave"));
+        assertThrows(ParametroInvalidoException.class, () -> CampoPerfil.desdePropiedades(" , "));
+        assertThrows(ParametroInvalidoException.class, () -> VistaPerfil.campos("summary", "apodo"));
+        assertEquals(VistaPerfil.SUMMARY.getCampos(), VistaPerfil.campos("summary", null));
     }
 
     @Test
     @DisplayName("Obtener perfil - No encontrado")
     void testObtenerPerfil_NotFound() {
         // Given
-        when(perfilRepository.findByUsuarioId("testuser")).thenReturn(Optional.empty());
+        when(perfilRepository.buscarCompletos(List.of("testuser"))).thenReturn(List.of());
 
         // When & Then
         assertThrows(PerfilNotFoundException.class, () -> {
             perfilService.obtenerPerfil("testuser");
         });
-        verify(perfilRepository).findByUsuarioId("testuser");
+        verify(perfilRepository).buscarCompletos(List.of("testuser"));
+    }
+
+    @Test
+    @DisplayName("Obtener versión del perfil - No encontrado")
+    void testObtenerVersionPerfil_NotFound() {
+        // Given
+        when(perfilRepository.findVersionByUsuarioId("testuser")).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(PerfilNotFoundException.class, () -> perfilService.obtenerVersionPerfil("testuser"));
+        verify(perfilRepository, never()).findByUsuarioId(anyString());
     }
 
     @Test
@@ -143,43 +397,169 @@ class PerfilServiceTest {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        when(perfilRepository.findAll()).thenReturn(Arrays.asList(perfil1, perfil2, perfil3));
+        when(perfilRepository.findPublicosDespuesDe(eq(""), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(Arrays.asList(perfil1, perfil3));
 
         // When
-        List<PerfilResponseDTO> result = perfilService.obtenerPerfilesPublicos();
+        List<PerfilResponseDTO> result = perfilService.obtenerPerfilesPublicos(null, 50, null, null);
 
         // Then
         assertEquals(2, result.size());
-        verify(perfilRepository).findAll();
+        verify(perfilRepository).findPublicosDespuesDe(eq(""), isNull(), isNull(), eq(PageRequest.of(0, 50)));
+        verify(perfilRepository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Obtener perfiles públicos - Continúa desde el cursor y aplica filtros")
+    void testObtenerPerfilesPublicos_CursorYFiltros() {
+        // Given
+        when(perfilRepository.findPublicosDespuesDe(eq("user3"), eq("Colombia"), isNull(), any(Pageable.class)))
+                .thenReturn(List.of(perfil));
+
+        // When
+        List<PerfilResponseDTO> result = perfilService.obtenerPerfilesPublicos("user3", 10, "Colombia", " ");
+
+        // Then
+        assertEquals(1, result.size());
+        verify(perfilRepository).findPublicosDespuesDe(eq("user3"), eq("Colombia"), isNull(), eq(PageRequest.of(0, 10)));
+    }
+
+    @Test
+    @DisplayName("Obtener perfiles públicos - Límite fuera de rango")
+    void testObtenerPerfilesPublicos_LimiteInvalido() {
+        // When & Then
+        assertThrows(ParametroInvalidoException.class, () -> perfilService.obtenerPerfilesPublicos(null, 0, null, null));
+        assertThrows(ParametroInvalidoException.class,
+                () -> perfilService.obtenerPerfilesPublicos(null, PerfilService.LIMITE_MAXIMO_PAGINA + 1, null, null));
+        verifyNoInteractions(perfilRepository);
+    }
+
+    @Test
+    @DisplayName("Escribir perfiles públicos como JSON - Normaliza cursor y filtros")
+    void testEscribirPerfilesPublicos() throws Exception {
+        // Given
+        JsonGenerator generador = mock(JsonGenerator.class);
+        PerfilVersion version = mock(PerfilVersion.class);
+        when(perfilJsonRepository.escribirPublicos("", 20, null, "Uniquindio", VistaPerfil.SUMMARY.getCampos(), generador))
+                .thenReturn(List.of(version));
+
+        // When
+        List<PerfilVersion> result = perfilService.escribirPerfilesPublicos(null, 20, " ", "Uniquindio",
+                VistaPerfil.SUMMARY.getCampos(), generador);
+
+        // Then
+        assertEquals(List.of(version), result);
+        verifyNoInteractions(perfilRepository);
+    }
+
+    @Test
+    @DisplayName("Escribir perfiles públicos como JSON - Límite fuera de rango")
+    void testEscribirPerfilesPublicos_LimiteInvalido() {
+        JsonGenerator generador = mock(JsonGenerator.class);
+
+        assertThrows(ParametroInvalidoException.class,
+                () -> perfilService.escribirPerfilesPublicos(null, 0, null, null, VistaPerfil.FULL.getCampos(), generador));
+        verifyNoInteractions(perfilJsonRepository, generador);
+    }
+
+    @Test
+    @DisplayName("Buscar perfiles públicos - Decodifica el cursor y normaliza el texto")
+    void testBuscarPerfilesPublicos() throws Exception {
+        // Given
+        JsonGenerator generador = mock(JsonGenerator.class);
+        CursorBusqueda cursor = new CursorBusqueda(0.3f, "user7");
+        List<CampoPerfil> campos = VistaPerfil.FULL.getCampos();
+        when(perfilJsonRepository.buscarPublicos("montaña", cursor, 20, campos, generador)).thenReturn(List.of());
+
+        // When
+        List<CursorBusqueda> result = perfilService.buscarPerfilesPublicos(
+                " montaña ", cursor.codificar(), 20, campos, generador);
+
+        // Then
+        assertTrue(result.isEmpty());
+        verify(perfilJsonRepository).buscarPublicos("montaña", cursor, 20, campos, generador);
+    }
+
+    @Test
+    @DisplayName("Buscar perfiles públicos - Texto vacío o cursor inválido")
+    void testBuscarPerfilesPublicos_Invalido() {
+        JsonGenerator generador = mock(JsonGenerator.class);
+        List<CampoPerfil> campos = VistaPerfil.FULL.getCampos();
+
+        assertThrows(ParametroInvalidoException.class,
+                () -> perfilService.buscarPerfilesPublicos(" ", null, 20, campos, generador));
+        assertThrows(ParametroInvalidoException.class,
+                () -> perfilService.buscarPerfilesPublicos("x".repeat(PerfilService.LONGITUD_MAXIMA_BUSQUEDA + 1),
+                        null, 20, campos, generador));
+        assertThrows(ParametroInvalidoException.class,
+                () -> perfilService.buscarPerfilesPublicos("montaña", "no-es-un-cursor", 20, campos, generador));
+        verifyNoInteractions(perfilJsonRepository);
+    }
+
+    @Test
+    @DisplayName("Exportar perfiles públicos - Escribe las filas sin cargar entidades")
+    void testExportarPerfilesPublicos() throws Exception {
+        // Given
+        JsonGenerator generador = mock(JsonGenerator.class);
+        when(perfilJsonRepository.escribirTodosPublicos(VistaPerfil.FULL.getCampos(), generador)).thenReturn(2L);
+
+        // When
+        long total = perfilService.exportarPerfilesPublicos(VistaPerfil.FULL.getCampos(), generador);
+
+        // Then
+        assertEquals(2, total);
+        verifyNoInteractions(perfilRepository);
+    }
+
+    @Test
+    @DisplayName("Facetas públicas - Se leen de la tabla agregada")
+    void testObtenerFacetasPublicas() {
+        // Given
+        PerfilFacetasDTO facetas = PerfilFacetasDTO.builder()
+                .paisResidencia(Map.of("Colombia", 2L))
+                .organizacion(Map.of())
+                .build();
+        when(facetasService.obtenerFacetas()).thenReturn(facetas);
+
+        // When & Then
+        assertSame(facetas, perfilService.obtenerFacetasPublicas());
+        verifyNoInteractions(perfilRepository, perfilJsonRepository);
     }
 
     @Test
     @DisplayName("Eliminar perfil - Camino feliz")
     void testEliminarPerfil_Success() {
         // Given
-        when(perfilRepository.existsByUsuarioId("testuser")).thenReturn(true);
+        FacetasPerfil anterior = new FacetasPerfil(true, "Colombia", "Uniquindio");
+        when(perfilRepository.findFacetasByUsuarioId("testuser")).thenReturn(Optional.of(anterior));
         doNothing().when(perfilRepository).deleteById("testuser");
 
         // When
         perfilService.eliminarPerfil("testuser");
 
         // Then
-        verify(perfilRepository).existsByUsuarioId("testuser");
+        verify(perfilRepository).findFacetasByUsuarioId("testuser");
         verify(perfilRepository).deleteById("testuser");
+        verify(facetasService).registrarCambio(anterior, null);
+        verify(outboxService).registrar("testuser", PerfilOutbox.TipoEvento.PERFIL_ELIMINADO, Map.of("usuarioId", "testuser"));
+        verify(eventPublisher).publishEvent(new PerfilModificadoEvent("testuser"));
     }
 
     @Test
     @DisplayName("Eliminar perfil - No encontrado")
     void testEliminarPerfil_NotFound() {
         // Given
-        when(perfilRepository.existsByUsuarioId("testuser")).thenReturn(false);
+        when(perfilRepository.findFacetasByUsuarioId("testuser")).thenReturn(Optional.empty());
 
         // When & Then
         assertThrows(PerfilNotFoundException.class, () -> {
             perfilService.eliminarPerfil("testuser");
         });
-        verify(perfilRepository).existsByUsuarioId("testuser");
+        verify(perfilRepository).findFacetasByUsuarioId("testuser");
         verify(perfilRepository, never()).deleteById(anyString());
+        verifyNoInteractions(outboxService);
+        verifyNoInteractions(facetasService);
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -202,15 +582,14 @@ class PerfilServiceTest {
                 .linkOtraRed("https://other.com/user")
                 .build();
 
-        when(perfilRepository.findByUsuarioId("testuser")).thenReturn(Optional.of(perfil));
-        when(perfilRepository.save(any(Perfil.class))).thenReturn(perfil);
+        when(perfilRepository.upsertPerfil("testuser", fullRequestDTO)).thenReturn(new PerfilUpsert(perfil, false, FacetasPerfil.de(perfil)));
 
         // When
         PerfilResponseDTO result = perfilService.crearOActualizarPerfil("testuser", fullRequestDTO);
 
         // Then
         assertNotNull(result);
-        verify(perfilRepository).save(any(Perfil.class));
+        verify(perfilRepository).upsertPerfil("testuser", fullRequestDTO);
     }
 
     @Test
@@ -218,31 +597,25 @@ class PerfilServiceTest {
     void testCrearPerfilConDatosNulos() {
         // Given
         PerfilRequestDTO emptyDTO = PerfilRequestDTO.builder().build();
-        when(perfilRepository.findByUsuarioId("testuser")).thenReturn(Optional.empty());
-        when(perfilRepository.save(any(Perfil.class))).thenReturn(perfil);
+        when(perfilRepository.upsertPerfil("testuser", emptyDTO)).thenReturn(new PerfilUpsert(perfil, true, null));
 
         // When
         PerfilResponseDTO result = perfilService.crearOActualizarPerfil("testuser", emptyDTO);
 
         // Then
         assertNotNull(result);
-        verify(perfilRepository).save(any(Perfil.class));
+        verify(perfilRepository).upsertPerfil("testuser", emptyDTO);
     }
 
     @Test
     @DisplayName("Obtener perfiles públicos cuando no hay ninguno")
     void testObtenerPerfilesPublicos_Empty() {
         // Given
-        Perfil perfil1 = Perfil.builder()
-                .usuarioId("user1")
-                .informacionContactoPublica(false)
-                .createdAt(LocalDateTime.now())
-                .build();
-
-        when(perfilRepository.findAll()).thenReturn(Arrays.asList(perfil1));
+        when(perfilRepository.findPublicosDespuesDe(anyString(), any(), any(), any(Pageable.class)))
+                .thenReturn(List.of());
 
         // When
-        List<PerfilResponseDTO> result = perfilService.obtenerPerfilesPublicos();
+        List<PerfilResponseDTO> result = perfilService.obtenerPerfilesPublicos(null, 50, null, null);
 
         // Then
         assertEquals(0, result.size());